@@ -0,0 +1,77 @@
+package com.kyle.cache;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 性能测试使用的Spring上下文，默认连接进程内的{@link EmbeddedRedisServer}；
+ * 指定 -Dbenchmark.redis=host:port 时连接真实的Redis
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class BenchmarkEnvironment implements Closeable {
+    public static final String CACHE_NAME = "bench";
+
+    private final EmbeddedRedisServer server;
+    private final AnnotationConfigApplicationContext context;
+
+    private BenchmarkEnvironment(EmbeddedRedisServer server, AnnotationConfigApplicationContext context) {
+        this.server = server;
+        this.context = context;
+    }
+
+    /**
+     * @param serializer 缓存值的序列化方式
+     * @param nearCache  缓存 {@link #CACHE_NAME} 是否开启本地缓存
+     */
+    public static BenchmarkEnvironment start(String serializer, boolean nearCache) throws IOException {
+        String redis = System.getProperty("benchmark.redis");
+        EmbeddedRedisServer server = redis == null ? new EmbeddedRedisServer() : null;
+
+        CacheRedisConfig config = new CacheRedisConfig();
+        config.setHost(server != null ? "127.0.0.1" : redis.substring(0, redis.lastIndexOf(':')));
+        config.setPort(server != null ? server.getPort() : Integer.parseInt(redis.substring(redis.lastIndexOf(':') + 1)));
+        config.setMaxTotal(64);
+        config.setMaxIdle(64);
+        config.setTimeout(2000);
+        config.setCacheName("benchmark");
+        config.setSerializer(serializer);
+        config.setTrustedPackages("com.kyle.cache");
+        CacheSettings settings = new CacheSettings();
+        settings.setNearCacheEnable(nearCache);
+        // 本地缓存放得下全部测试数据，命中测试不会因为淘汰退回Redis
+        settings.setNearCacheMaxSize(64 * 1024);
+        Map<String, CacheSettings> caches = new HashMap<>();
+        caches.put(CACHE_NAME, settings);
+        config.setCaches(caches);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("cacheRedisConfig", config);
+        context.getBeanFactory().registerSingleton("lockConfig", new LockConfig());
+        context.register(RedisCacheIniter.class, LockUtils.class);
+        context.refresh();
+        return new BenchmarkEnvironment(server, context);
+    }
+
+    public ExtendRedisCacheManager getCacheManager() {
+        return context.getBean(ExtendRedisCacheManager.class);
+    }
+
+    public LockUtils getLockUtils() {
+        return context.getBean(LockUtils.class);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        if (server != null) {
+            server.close();
+        }
+    }
+}
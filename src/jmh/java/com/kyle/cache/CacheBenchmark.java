@@ -0,0 +1,113 @@
+package com.kyle.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomRedisCache} 的读写路径：命中、未命中、写入，以及少量热点key被并发加载和删除时的 get(key, Callable)
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="CacheBenchmark -f 1"
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final int KEYS = 1024;
+    private static final int HOT_KEYS = 16;
+
+    @Param({"jackson", "binary"})
+    private String serializer;
+
+    @Param({"false", "true"})
+    private boolean nearCache;
+
+    private BenchmarkEnvironment environment;
+    private Cache cache;
+    private Object value;
+    private String[] keys;
+    private String[] missingKeys;
+    private String[] hotKeys;
+    private Callable<Object> loader;
+
+    @Setup
+    public void setup() throws IOException {
+        environment = BenchmarkEnvironment.start(serializer, nearCache);
+        cache = environment.getCacheManager().getCache(BenchmarkEnvironment.CACHE_NAME + "#600");
+        cache.clear();
+        value = SerializerBenchmark.Order.create(1);
+        keys = new String[KEYS];
+        missingKeys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "order:" + i;
+            missingKeys[i] = "missing:" + i;
+            cache.put(keys[i], value);
+        }
+        hotKeys = new String[HOT_KEYS];
+        for (int i = 0; i < HOT_KEYS; i++) {
+            hotKeys[i] = "hot:" + i;
+        }
+        loader = () -> value;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return cache.get(keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return cache.get(missingKeys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(keys[ThreadLocalRandom.current().nextInt(KEYS)], value);
+    }
+
+    /**
+     * 7个线程通过 get(key, Callable) 读取16个热点key，1个线程不断删除热点key，触发并发加载和加载锁
+     */
+    @Benchmark
+    @Group("loadContended")
+    @GroupThreads(7)
+    public Object load() {
+        return cache.get(hotKeys[ThreadLocalRandom.current().nextInt(HOT_KEYS)], loader);
+    }
+
+    @Benchmark
+    @Group("loadContended")
+    @GroupThreads(1)
+    public void evictHot() {
+        cache.evict(hotKeys[ThreadLocalRandom.current().nextInt(HOT_KEYS)]);
+    }
+}
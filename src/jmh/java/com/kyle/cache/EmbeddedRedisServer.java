@@ -0,0 +1,785 @@
+package com.kyle.cache;
+
+import org.springframework.data.redis.connection.util.ByteArrayWrapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的Redis协议替身，只用于性能测试，不依赖外部Redis
+ * <p>
+ * 实现缓存和锁用到的命令：字符串、过期、有序集合、MULTI/EXEC、SCAN、发布订阅；
+ * lua脚本不解释执行，只支持项目中用到的几个脚本，按脚本的SHA1匹配到对应的Java实现。
+ * 和Redis一样所有命令串行执行，一个连接一个线程
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class EmbeddedRedisServer implements Closeable {
+    private static final Object OK = new Status("OK");
+    private static final Object QUEUED = new Status("QUEUED");
+    private static final Object PONG = new Status("PONG");
+
+    private final Map<ByteArrayWrapper, Entry> data = new HashMap<>();
+    private final Map<String, Script> scripts = new HashMap<>();
+    private final Set<Connection> connections = new CopyOnWriteArraySet<>();
+    private final ServerSocket serverSocket;
+    private volatile boolean running = true;
+
+    public EmbeddedRedisServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param port 监听端口，0表示随机端口
+     */
+    public EmbeddedRedisServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        registerScripts();
+        Thread acceptor = new Thread(this::accept, "embedded-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+                Thread thread = new Thread(connection, "embedded-redis-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    throw new IllegalStateException("Embedded redis stopped accepting connections", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 项目中用到的脚本，脚本内容必须与调用处完全一致
+     */
+    private void registerScripts() {
+        // LockReleaseNotifier.TRY_LOCK_LUA
+        scripts.put(sha1(LockReleaseNotifier.TRY_LOCK_LUA),
+                (keys, args) -> set(keys.get(0), args.get(0), System.currentTimeMillis() + parseLong(args.get(1)), true) ? 1L : 0L);
+        // LockReleaseNotifier.RELEASE_LUA
+        scripts.put(sha1(LockReleaseNotifier.RELEASE_LUA), (keys, args) -> {
+            if (!Arrays.equals(getString(keys.get(0)), args.get(0))) {
+                return 0L;
+            }
+            long released = delete(keys.get(0));
+            if (args.size() > 1) {
+                publish(args.get(1), keys.get(0));
+            }
+            return released;
+        });
+        // LockUtils.UNLOCK_LUA
+        scripts.put(sha1(LockUtils.UNLOCK_LUA), (keys, args) -> Arrays.equals(getString(keys.get(0)), args.get(0)) ? delete(keys.get(0)) : 0L);
+        // LockUtils.RENEW_LUA
+        scripts.put(sha1(LockUtils.RENEW_LUA), (keys, args) -> {
+            List<Object> renewed = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                Entry entry = entry(keys.get(i));
+                if (entry != null && Arrays.equals(getString(keys.get(i)), args.get(i * 2))) {
+                    entry.expireAt = expireAt(args.get(i * 2 + 1));
+                    renewed.add(1L);
+                } else {
+                    renewed.add(0L);
+                }
+            }
+            return renewed;
+        });
+        // RedisCacheTouchCallback.TOUCH_LUA
+        scripts.put(sha1(CustomRedisCache.RedisCacheTouchCallback.TOUCH_LUA), (keys, args) -> {
+            for (int i = 0; i < keys.size(); i++) {
+                Entry entry = entry(keys.get(i));
+                if (entry == null) {
+                    continue;
+                }
+                byte[] value = getString(keys.get(i));
+                if (value != null && value.length >= 18 && value[0] == 0 && (value[1] & 1) != 0) {
+                    System.arraycopy(args.get(i * 2 + 1), 0, value, 10, 8);
+                }
+                entry.expireAt = System.currentTimeMillis() + parseLong(args.get(i * 2)) * 1000L;
+            }
+            return (long) keys.size();
+        });
+        // AbstractRedisCacheCallback.PUT_LUA
+        scripts.put(sha1(CustomRedisCache.AbstractRedisCacheCallback.PUT_LUA), (keys, args) -> {
+            set(keys.get(0), args.get(0), expireAt(args.get(1)), false);
+            addKnownKey(keys.get(1), keys.get(0), parseLong(args.get(1)), parseLong(args.get(2)));
+            return 1L;
+        });
+        // AbstractRedisCacheCallback.PUT_IF_ABSENT_LUA
+        scripts.put(sha1(CustomRedisCache.AbstractRedisCacheCallback.PUT_IF_ABSENT_LUA), (keys, args) -> {
+            if (!set(keys.get(0), args.get(0), expireAt(args.get(1)), true)) {
+                return getString(keys.get(0));
+            }
+            if (keys.size() > 1) {
+                addKnownKey(keys.get(1), keys.get(0), parseLong(args.get(1)), parseLong(args.get(2)));
+            }
+            return null;
+        });
+        // KnownKeysIndex.ADD_LUA
+        scripts.put(sha1(CustomRedisCache.KnownKeysIndex.ADD_LUA), (keys, args) -> {
+            long now = parseLong(args.get(0));
+            for (int i = 1; i + 2 < args.size(); i += 3) {
+                addKnownKey(keys.get((int) parseLong(args.get(i)) - 1), args.get(i + 1), parseLong(args.get(i + 2)), now);
+            }
+            return 1L;
+        });
+        // RedisCacheCleanByPrefixCallback.UNLINK_LUA
+        scripts.put(sha1(CustomRedisCache.RedisCacheCleanByPrefixCallback.UNLINK_LUA), (keys, args) -> {
+            long removed = 0L;
+            for (byte[] key : keys) {
+                removed += delete(key);
+            }
+            return removed;
+        });
+    }
+
+    /**
+     * 执行一条命令，调用时已持有data的锁
+     */
+    private Object execute(Connection connection, List<byte[]> command) {
+        String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase();
+        switch (name) {
+            case "PING":
+                return command.size() > 1 ? command.get(1) : PONG;
+            case "ECHO":
+                return command.get(1);
+            case "SELECT":
+            case "AUTH":
+            case "CLIENT":
+            case "WATCH":
+            case "UNWATCH":
+                return OK;
+            case "QUIT":
+                connection.quit = true;
+                return OK;
+            case "INFO":
+                return "# Server\r\nredis_version:6.2.0\r\nredis_mode:standalone\r\n".getBytes(StandardCharsets.US_ASCII);
+            case "FLUSHDB":
+            case "FLUSHALL":
+                data.clear();
+                return OK;
+            case "DBSIZE":
+                return (long) data.size();
+            case "GET":
+                return getString(command.get(1));
+            case "MGET": {
+                List<Object> values = new ArrayList<>(command.size() - 1);
+                for (int i = 1; i < command.size(); i++) {
+                    Entry entry = entry(command.get(i));
+                    values.add(entry != null && entry.value instanceof byte[] ? entry.value : null);
+                }
+                return values;
+            }
+            case "SET":
+                return executeSet(command);
+            case "SETNX":
+                return set(command.get(1), command.get(2), 0L, true) ? 1L : 0L;
+            case "SETEX":
+                set(command.get(1), command.get(3), System.currentTimeMillis() + parseLong(command.get(2)) * 1000L, false);
+                return OK;
+            case "PSETEX":
+                set(command.get(1), command.get(3), System.currentTimeMillis() + parseLong(command.get(2)), false);
+                return OK;
+            case "INCR":
+            case "INCRBY": {
+                byte[] current = getString(command.get(1));
+                long value = (current == null ? 0L : parseLong(current)) + ("INCR".equals(name) ? 1L : parseLong(command.get(2)));
+                Entry entry = entry(command.get(1));
+                data.put(new ByteArrayWrapper(command.get(1)), new Entry(String.valueOf(value).getBytes(StandardCharsets.US_ASCII), entry != null ? entry.expireAt : 0L));
+                return value;
+            }
+            case "DEL":
+            case "UNLINK": {
+                long removed = 0L;
+                for (int i = 1; i < command.size(); i++) {
+                    removed += delete(command.get(i));
+                }
+                return removed;
+            }
+            case "EXISTS": {
+                long count = 0L;
+                for (int i = 1; i < command.size(); i++) {
+                    count += entry(command.get(i)) != null ? 1L : 0L;
+                }
+                return count;
+            }
+            case "EXPIRE":
+            case "PEXPIRE": {
+                Entry entry = entry(command.get(1));
+                if (entry == null) {
+                    return 0L;
+                }
+                long ttl = parseLong(command.get(2));
+                entry.expireAt = System.currentTimeMillis() + ("EXPIRE".equals(name) ? ttl * 1000L : ttl);
+                return 1L;
+            }
+            case "PERSIST": {
+                Entry entry = entry(command.get(1));
+                if (entry == null || entry.expireAt == 0L) {
+                    return 0L;
+                }
+                entry.expireAt = 0L;
+                return 1L;
+            }
+            case "TTL":
+            case "PTTL": {
+                Entry entry = entry(command.get(1));
+                if (entry == null) {
+                    return -2L;
+                }
+                if (entry.expireAt == 0L) {
+                    return -1L;
+                }
+                long millis = entry.expireAt - System.currentTimeMillis();
+                return "TTL".equals(name) ? (millis + 999L) / 1000L : millis;
+            }
+            case "KEYS":
+                return keys(command.get(1));
+            case "SCAN": {
+                // 一次返回全部匹配的key，游标固定为0
+                byte[] pattern = null;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if ("MATCH".equalsIgnoreCase(new String(command.get(i), StandardCharsets.US_ASCII))) {
+                        pattern = command.get(i + 1);
+                    }
+                }
+                return Arrays.asList("0".getBytes(StandardCharsets.US_ASCII), keys(pattern));
+            }
+            case "ZADD": {
+                Map<ByteArrayWrapper, Double> zset = zset(command.get(1), true);
+                long added = 0L;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    if (zset.put(new ByteArrayWrapper(command.get(i + 1)), Double.parseDouble(new String(command.get(i), StandardCharsets.US_ASCII))) == null) {
+                        added++;
+                    }
+                }
+                return added;
+            }
+            case "ZREM": {
+                Map<ByteArrayWrapper, Double> zset = zset(command.get(1), false);
+                long removed = 0L;
+                for (int i = 2; zset != null && i < command.size(); i++) {
+                    removed += zset.remove(new ByteArrayWrapper(command.get(i))) != null ? 1L : 0L;
+                }
+                if (zset != null && zset.isEmpty()) {
+                    delete(command.get(1));
+                }
+                return removed;
+            }
+            case "ZCARD": {
+                Map<ByteArrayWrapper, Double> zset = zset(command.get(1), false);
+                return zset == null ? 0L : (long) zset.size();
+            }
+            case "ZRANGE":
+                return zrange(command.get(1), parseLong(command.get(2)), parseLong(command.get(3)));
+            case "EVAL":
+                return eval(sha1(new String(command.get(1), StandardCharsets.UTF_8)), command);
+            case "EVALSHA":
+                return eval(new String(command.get(1), StandardCharsets.US_ASCII), command);
+            case "SCRIPT":
+                return executeScript(command);
+            case "PUBLISH":
+                return publish(command.get(1), command.get(2));
+            default:
+                return new Error("ERR unknown command '" + name + "' for embedded redis");
+        }
+    }
+
+    private Object executeSet(List<byte[]> command) {
+        boolean nx = false;
+        boolean xx = false;
+        long expireAt = 0L;
+        for (int i = 3; i < command.size(); i++) {
+            String option = new String(command.get(i), StandardCharsets.US_ASCII).toUpperCase();
+            if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            } else if ("EX".equals(option)) {
+                expireAt = System.currentTimeMillis() + parseLong(command.get(++i)) * 1000L;
+            } else if ("PX".equals(option)) {
+                expireAt = System.currentTimeMillis() + parseLong(command.get(++i));
+            } else {
+                return new Error("ERR syntax error");
+            }
+        }
+        if (xx && entry(command.get(1)) == null) {
+            return null;
+        }
+        return set(command.get(1), command.get(2), expireAt, nx) ? OK : null;
+    }
+
+    private Object executeScript(List<byte[]> command) {
+        String sub = new String(command.get(1), StandardCharsets.US_ASCII).toUpperCase();
+        if ("LOAD".equals(sub)) {
+            return sha1(new String(command.get(2), StandardCharsets.UTF_8)).getBytes(StandardCharsets.US_ASCII);
+        }
+        if ("EXISTS".equals(sub)) {
+            List<Object> result = new ArrayList<>();
+            for (int i = 2; i < command.size(); i++) {
+                result.add(scripts.containsKey(new String(command.get(i), StandardCharsets.US_ASCII)) ? 1L : 0L);
+            }
+            return result;
+        }
+        return OK;
+    }
+
+    private Object eval(String sha, List<byte[]> command) {
+        Script script = scripts.get(sha);
+        if (script == null) {
+            return new Error("NOSCRIPT script " + sha + " is not supported by embedded redis");
+        }
+        int numKeys = (int) parseLong(command.get(2));
+        List<byte[]> keys = command.subList(3, 3 + numKeys);
+        List<byte[]> args = command.subList(3 + numKeys, command.size());
+        return script.run(keys, args);
+    }
+
+    private Entry entry(byte[] key) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        Entry entry = data.get(wrapper);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            data.remove(wrapper);
+            return null;
+        }
+        return entry;
+    }
+
+    private byte[] getString(byte[] key) {
+        Entry entry = entry(key);
+        return entry != null && entry.value instanceof byte[] ? (byte[]) entry.value : null;
+    }
+
+    /**
+     * @param expireAt 过期时间点-毫秒，0表示不过期
+     * @return nx为true且key已存在时返回false
+     */
+    private boolean set(byte[] key, byte[] value, long expireAt, boolean nx) {
+        if (nx && entry(key) != null) {
+            return false;
+        }
+        data.put(new ByteArrayWrapper(key), new Entry(value, expireAt));
+        return true;
+    }
+
+    /**
+     * @param ttlMillis 过期时间-毫秒，0表示不过期
+     */
+    private static long expireAt(byte[] ttlMillis) {
+        long ttl = parseLong(ttlMillis);
+        return ttl > 0L ? System.currentTimeMillis() + ttl : 0L;
+    }
+
+    /**
+     * 与 KnownKeysIndex.INDEX_FUNCTION_LUA 一致：删除过期的成员，分数为过期时间点，分桶的过期时间只延长
+     */
+    private void addKnownKey(byte[] bucket, byte[] member, long ttlMillis, long now) {
+        Map<ByteArrayWrapper, Double> zset = zset(bucket, false);
+        if (zset != null) {
+            zset.values().removeIf(score -> score <= now - CustomRedisCache.KnownKeysIndex.GRACE_MILLIS);
+        }
+        boolean existed = zset != null && !zset.isEmpty();
+        if (!existed) {
+            delete(bucket);
+        }
+        zset(bucket, true).put(new ByteArrayWrapper(member), ttlMillis > 0L ? (double) (now + ttlMillis) : Double.POSITIVE_INFINITY);
+        Entry entry = entry(bucket);
+        long expireAt = now + ttlMillis + CustomRedisCache.KnownKeysIndex.GRACE_MILLIS;
+        if (ttlMillis <= 0L) {
+            entry.expireAt = 0L;
+        } else if (!existed || (entry.expireAt > 0L && entry.expireAt < expireAt)) {
+            entry.expireAt = expireAt;
+        }
+    }
+
+    private long delete(byte[] key) {
+        Entry entry = data.remove(new ByteArrayWrapper(key));
+        return entry != null && !entry.isExpired(System.currentTimeMillis()) ? 1L : 0L;
+    }
+
+    private List<Object> keys(byte[] pattern) {
+        Pattern regex = pattern == null ? null : globToRegex(new String(pattern, StandardCharsets.ISO_8859_1));
+        long now = System.currentTimeMillis();
+        List<Object> keys = new ArrayList<>();
+        Iterator<Map.Entry<ByteArrayWrapper, Entry>> iterator = data.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ByteArrayWrapper, Entry> item = iterator.next();
+            if (item.getValue().isExpired(now)) {
+                iterator.remove();
+                continue;
+            }
+            byte[] key = item.getKey().getArray();
+            if (regex == null || regex.matcher(new String(key, StandardCharsets.ISO_8859_1)).matches()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<ByteArrayWrapper, Double> zset(byte[] key, boolean create) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            if (!create) {
+                return null;
+            }
+            entry = new Entry(new HashMap<ByteArrayWrapper, Double>(), 0L);
+            data.put(new ByteArrayWrapper(key), entry);
+        }
+        return entry.value instanceof Map ? (Map<ByteArrayWrapper, Double>) entry.value : Collections.<ByteArrayWrapper, Double>emptyMap();
+    }
+
+    private List<Object> zrange(byte[] key, long start, long stop) {
+        Map<ByteArrayWrapper, Double> zset = zset(key, false);
+        if (zset == null) {
+            return Collections.emptyList();
+        }
+        List<Map.Entry<ByteArrayWrapper, Double>> members = new ArrayList<>(zset.entrySet());
+        members.sort(Map.Entry.comparingByValue());
+        int size = members.size();
+        int from = (int) Math.max(start < 0 ? size + start : start, 0L);
+        int to = (int) Math.min(stop < 0 ? size + stop : stop, size - 1L);
+        List<Object> result = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            result.add(members.get(i).getKey().getArray());
+        }
+        return result;
+    }
+
+    private long publish(byte[] channel, byte[] message) {
+        long receivers = 0L;
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(channel);
+        for (Connection connection : connections) {
+            if (connection.channels.contains(wrapper)) {
+                connection.push(Arrays.asList("message".getBytes(StandardCharsets.US_ASCII), channel, message));
+                receivers++;
+            }
+        }
+        return receivers;
+    }
+
+    private static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static long parseLong(byte[] bytes) {
+        return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    private static String sha1(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface Script {
+        Object run(List<byte[]> keys, List<byte[]> args);
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt != 0L && now >= expireAt;
+        }
+    }
+
+    private static final class Status {
+        private final String text;
+
+        Status(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Error {
+        private final String text;
+
+        Error(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * 一个客户端连接，订阅后只接受订阅相关的命令
+     */
+    private final class Connection implements Runnable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final Set<ByteArrayWrapper> channels = new CopyOnWriteArraySet<>();
+        private List<List<byte[]>> transaction;
+        private boolean quit;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!quit) {
+                    List<byte[]> command = readCommand();
+                    Object reply = handle(command);
+                    synchronized (this) {
+                        write(reply);
+                        // pipeline中还有命令时先不刷出，减少系统调用
+                        if (in.available() == 0) {
+                            out.flush();
+                        }
+                    }
+                }
+                synchronized (this) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // 客户端断开
+            } finally {
+                close();
+            }
+        }
+
+        private Object handle(List<byte[]> command) {
+            String name = new String(command.get(0), StandardCharsets.US_ASCII).toUpperCase();
+            switch (name) {
+                case "SUBSCRIBE":
+                    return subscribe(command, true);
+                case "UNSUBSCRIBE":
+                    return subscribe(command, false);
+                case "MULTI":
+                    transaction = new ArrayList<>();
+                    return OK;
+                case "DISCARD":
+                    transaction = null;
+                    return OK;
+                case "EXEC": {
+                    if (transaction == null) {
+                        return new Error("ERR EXEC without MULTI");
+                    }
+                    List<Object> results = new ArrayList<>(transaction.size());
+                    synchronized (data) {
+                        for (List<byte[]> queued : transaction) {
+                            results.add(execute(this, queued));
+                        }
+                    }
+                    transaction = null;
+                    return results;
+                }
+                default:
+                    if (transaction != null) {
+                        transaction.add(command);
+                        return QUEUED;
+                    }
+                    synchronized (data) {
+                        return execute(this, command);
+                    }
+            }
+        }
+
+        /**
+         * 每个频道单独回复，最后一个回复由调用方写出
+         */
+        private Object subscribe(List<byte[]> command, boolean subscribe) {
+            List<byte[]> targets = command.size() > 1 ? command.subList(1, command.size()) : toArrays(channels);
+            byte[] kind = (subscribe ? "subscribe" : "unsubscribe").getBytes(StandardCharsets.US_ASCII);
+            if (targets.isEmpty()) {
+                return Arrays.asList(kind, null, 0L);
+            }
+            List<Object> last = null;
+            for (int i = 0; i < targets.size(); i++) {
+                ByteArrayWrapper channel = new ByteArrayWrapper(targets.get(i));
+                if (subscribe) {
+                    channels.add(channel);
+                } else {
+                    channels.remove(channel);
+                }
+                last = Arrays.asList(kind, targets.get(i), (long) channels.size());
+                if (i < targets.size() - 1) {
+                    push(last);
+                }
+            }
+            return last;
+        }
+
+        private List<byte[]> toArrays(Set<ByteArrayWrapper> wrappers) {
+            List<byte[]> arrays = new ArrayList<>(wrappers.size());
+            for (ByteArrayWrapper wrapper : wrappers) {
+                arrays.add(wrapper.getArray());
+            }
+            return arrays;
+        }
+
+        synchronized void push(Object message) {
+            try {
+                write(message);
+                out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        private List<byte[]> readCommand() throws IOException {
+            int type = in.read();
+            if (type == -1) {
+                throw new EOFException();
+            }
+            if (type != '*') {
+                // inline命令，按空格分隔
+                String line = (char) type + readLine();
+                List<byte[]> command = new ArrayList<>();
+                for (String part : line.trim().split("\\s+")) {
+                    command.add(part.getBytes(StandardCharsets.UTF_8));
+                }
+                return command;
+            }
+            int count = Integer.parseInt(readLine());
+            List<byte[]> command = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (in.read() != '$') {
+                    throw new IOException("Protocol error: expected bulk string");
+                }
+                int length = Integer.parseInt(readLine());
+                byte[] bytes = new byte[length];
+                int read = 0;
+                while (read < length) {
+                    int n = in.read(bytes, read, length - read);
+                    if (n == -1) {
+                        throw new EOFException();
+                    }
+                    read += n;
+                }
+                in.read();
+                in.read();
+                command.add(bytes);
+            }
+            return command;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c == -1) {
+                    throw new EOFException();
+                }
+                line.append((char) c);
+            }
+            in.read();
+            return line.toString();
+        }
+
+        private void write(Object reply) throws IOException {
+            if (reply == null) {
+                out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+            } else if (reply instanceof Status) {
+                writeLine('+', ((Status) reply).text);
+            } else if (reply instanceof Error) {
+                writeLine('-', ((Error) reply).text);
+            } else if (reply instanceof Long) {
+                writeLine(':', reply.toString());
+            } else if (reply instanceof byte[]) {
+                byte[] bytes = (byte[]) reply;
+                writeLine('$', String.valueOf(bytes.length));
+                out.write(bytes);
+                out.write('\r');
+                out.write('\n');
+            } else if (reply instanceof List) {
+                List<?> items = (List<?>) reply;
+                writeLine('*', String.valueOf(items.size()));
+                for (Object item : items) {
+                    write(item);
+                }
+            } else {
+                throw new IllegalStateException("Unsupported reply " + reply.getClass());
+            }
+        }
+
+        private void writeLine(char type, String text) throws IOException {
+            out.write(type);
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.write('\r');
+            out.write('\n');
+        }
+    }
+}
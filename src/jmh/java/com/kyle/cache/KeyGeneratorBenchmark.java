@@ -0,0 +1,57 @@
+package com.kyle.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RedisCacheIniter#keyGenerator()} 生成缓存key，不需要Redis
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="KeyGeneratorBenchmark -f 1"
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+    private KeyGenerator keyGenerator;
+    private OrderService target;
+    private Method method;
+    private Object[] params;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        keyGenerator = new RedisCacheIniter().keyGenerator();
+        target = new OrderService();
+        method = OrderService.class.getMethod("findOrders", long.class, String.class, Integer.class);
+        params = new Object[]{10086L, "PAID", null};
+    }
+
+    @Benchmark
+    public Object generate() {
+        return keyGenerator.generate(target, method, params);
+    }
+
+    public static class OrderService {
+        public Object findOrders(long customerId, String status, Integer page) {
+            return null;
+        }
+    }
+}
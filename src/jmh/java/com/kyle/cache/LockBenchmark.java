@@ -0,0 +1,75 @@
+package com.kyle.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link LockUtils} 加锁和释放锁：每个线程使用自己的key，以及4个线程争用同一个key
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LockBenchmark -f 1"
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockBenchmark {
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+    private BenchmarkEnvironment environment;
+    private LockUtils lockUtils;
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+        private final String key = "lock:" + THREAD_IDS.incrementAndGet();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        environment = BenchmarkEnvironment.start(CacheSerializers.JACKSON, false);
+        lockUtils = environment.getLockUtils();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public boolean lockAndRelease(ThreadKey threadKey) {
+        boolean locked = lockUtils.lock(threadKey.key, 2000L, 0, 0L);
+        if (locked) {
+            lockUtils.releaseLock(threadKey.key);
+        }
+        return locked;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean lockAndReleaseContended() {
+        boolean locked = lockUtils.lock("lock:shared", 2000L, 100, 50L);
+        if (locked) {
+            lockUtils.releaseLock("lock:shared");
+        }
+        return locked;
+    }
+}
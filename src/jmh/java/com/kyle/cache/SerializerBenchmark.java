@@ -0,0 +1,137 @@
+package com.kyle.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisTemplate上的Jackson序列化、{@link JacksonRedisSerializer}与{@link BinaryRedisSerializer}的对比
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SerializerBenchmark -f 1"
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"jackson", "jackson-tuned", "binary"})
+    private String serializer;
+
+    //single：单个对象，list：100个对象的列表
+    @Param({"single", "list"})
+    private String payload;
+
+    private RedisSerializer<Object> redisSerializer;
+    private Class<?> type;
+    private Object value;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        if ("binary".equals(serializer)) {
+            redisSerializer = new BinaryRedisSerializer(Collections.singleton("com.kyle.cache"));
+        } else if ("jackson-tuned".equals(serializer)) {
+            redisSerializer = new JacksonRedisSerializer(RedisCacheIniter.objectMapper());
+        } else {
+            redisSerializer = RedisCacheIniter.jacksonSerializer();
+        }
+        if ("list".equals(payload)) {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                orders.add(Order.create(i));
+            }
+            value = orders;
+            type = List.class;
+        } else {
+            value = Order.create(1);
+            type = Order.class;
+        }
+        bytes = redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+
+    /**
+     * 按声明类型读取，不支持的序列化方式按Object读取
+     */
+    @Benchmark
+    public Object deserializeTyped() {
+        if (redisSerializer instanceof TypedRedisSerializer) {
+            return ((TypedRedisSerializer<Object>) redisSerializer).deserialize(bytes, 0, bytes.length, type);
+        }
+        return redisSerializer.deserialize(bytes);
+    }
+
+    public enum Status {
+        CREATED, PAID, SHIPPED
+    }
+
+    public static class Item {
+        private String sku;
+        private int quantity;
+        private BigDecimal price;
+    }
+
+    public static class Order {
+        private long id;
+        private String customer;
+        private Status status;
+        private LocalDateTime createdAt;
+        private List<Item> items;
+        private Map<String, String> attributes;
+
+        static Order create(int id) {
+            Order order = new Order();
+            order.id = id;
+            order.customer = "customer-" + id;
+            order.status = Status.PAID;
+            order.createdAt = LocalDateTime.of(2026, 10, 17, 12, 0);
+            order.items = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                Item item = new Item();
+                item.sku = "sku-" + i;
+                item.quantity = i + 1;
+                item.price = new BigDecimal("19.90");
+                order.items.add(item);
+            }
+            order.attributes = new HashMap<>();
+            order.attributes.put("channel", "web");
+            order.attributes.put("tags", String.join(",", Arrays.asList("a", "b")));
+            return order;
+        }
+    }
+}
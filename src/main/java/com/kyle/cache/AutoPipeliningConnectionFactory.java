@@ -0,0 +1,518 @@
+package com.kyle.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.util.Assert;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 自动合并pipeline的连接工厂，包装 Jedis 的连接工厂
+ * <p>
+ * 各线程通过RedisConnection发出的单key命令（GET、SET、SETEX、EXISTS、DEL、EXPIRE、TTL、INCR等）不再各自占用一个连接，
+ * 而是放入队列，由少量flush线程取出当前排队的全部命令，每个线程用一个连接以pipeline执行后把结果分别交还给调用方。
+ * 一次pipeline执行期间到达的命令组成下一批，并发越高每批越大，吞吐量随并发增长而不受连接池大小限制。
+ * <p>
+ * 连接上执行了其他命令（事务、pipeline、脚本、SCAN、订阅、获取原生连接等）后，该连接之后的命令都直接在
+ * 一个独占的连接上执行，行为和包装前一致。集群模式下按key所在的master分组，每个节点一个pipeline，
+ * 节点返回MOVED/ASK的命令退回到集群连接逐个执行
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class AutoPipeliningConnectionFactory implements RedisConnectionFactory, DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(AutoPipeliningConnectionFactory.class);
+
+    private final RedisConnectionFactory delegate;
+    private final boolean cluster;
+    private final BlockingQueue<PendingCommand> queue = new LinkedBlockingQueue<PendingCommand>();
+    private final List<Thread> flushers = new ArrayList<Thread>();
+    //每个pipeline最多包含的命令数
+    private final int maxBatchSize;
+    //调用方等待结果的超时时间-毫秒，0表示不限制
+    private final long timeoutMillis;
+    private volatile boolean running = true;
+
+    /**
+     * @param delegate      Jedis 连接工厂
+     * @param connections   执行pipeline的线程数，每个线程执行时占用一个连接
+     * @param maxBatchSize  每个pipeline最多包含的命令数
+     * @param timeoutMillis 调用方等待结果的超时时间-毫秒，0表示不限制
+     */
+    public AutoPipeliningConnectionFactory(RedisConnectionFactory delegate, int connections, int maxBatchSize, long timeoutMillis) {
+        Assert.notNull(delegate, "delegate must not be null");
+        Assert.isTrue(connections > 0, "connections must be greater than 0");
+        Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be greater than 0");
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutMillis = Math.max(timeoutMillis, 0L);
+        RedisConnection connection = delegate.getConnection();
+        try {
+            this.cluster = connection instanceof RedisClusterConnection;
+        } finally {
+            connection.close();
+        }
+        for (int i = 1; i <= connections; i++) {
+            Thread flusher = new Thread(new Flusher(), "cache-pipeline-" + i);
+            flusher.setDaemon(true);
+            flusher.start();
+            flushers.add(flusher);
+        }
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return cluster ? getClusterConnection() : newConnection(RedisConnection.class);
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return newConnection(RedisClusterConnection.class);
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate.getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate.getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate.translateExceptionIfPossible(ex);
+    }
+
+    /**
+     * 停止flush线程，已在队列中的命令执行完后退出，之后关闭被包装的连接工厂
+     */
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        for (Thread flusher : flushers) {
+            flusher.interrupt();
+        }
+        for (Thread flusher : flushers) {
+            flusher.join(1000L);
+        }
+        failAll(new RedisSystemException("Auto pipelining connection factory is closed", null));
+        if (delegate instanceof DisposableBean) {
+            ((DisposableBean) delegate).destroy();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends RedisConnection> T newConnection(Class<T> type) {
+        return (T) Proxy.newProxyInstance(AutoPipeliningConnectionFactory.class.getClassLoader(), new Class<?>[]{type},
+                new AutoPipeliningConnection());
+    }
+
+    private Object enqueue(Command command, Method method, Object[] args) {
+        if (!running) {
+            throw new RedisSystemException("Auto pipelining connection factory is closed", null);
+        }
+        PendingCommand pending = new PendingCommand(command, method, args);
+        queue.add(pending);
+        try {
+            return timeoutMillis > 0L ? pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS) : pending.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while waiting for pipelined " + method.getName(), e);
+        } catch (TimeoutException e) {
+            throw new RedisSystemException("Pipelined " + method.getName() + " timed out after " + timeoutMillis + "ms", e);
+        } catch (ExecutionException e) {
+            throw translate(e.getCause());
+        }
+    }
+
+    private void flush(List<PendingCommand> batch) {
+        if (cluster) {
+            flushCluster(batch);
+        } else {
+            RedisConnection connection = delegate.getConnection();
+            try {
+                execute((Jedis) connection.getNativeConnection(), batch);
+            } catch (RuntimeException e) {
+                fail(batch, e);
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    private void flushCluster(List<PendingCommand> batch) {
+        RedisConnection connection = delegate.getConnection();
+        try {
+            final Map<String, List<PendingCommand>> groups = new LinkedHashMap<String, List<PendingCommand>>();
+            for (PendingCommand pending : batch) {
+                String node;
+                try {
+                    node = RedisClusterSupport.getNodeForKey(connection, pending.key());
+                } catch (RuntimeException e) {
+                    // 拓扑不完整时交给集群连接自己路由
+                    executeDirectly(pending);
+                    continue;
+                }
+                List<PendingCommand> commands = groups.get(node);
+                if (commands == null) {
+                    commands = new ArrayList<PendingCommand>();
+                    groups.put(node, commands);
+                }
+                commands.add(pending);
+            }
+            if (groups.isEmpty()) {
+                return;
+            }
+            try {
+                RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Void>() {
+                    @Override
+                    public Void doInNode(String node, Jedis jedis) {
+                        AutoPipeliningConnectionFactory.this.execute(jedis, groups.get(node));
+                        return null;
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 节点连接失败，没有返回结果的命令全部失败，不重试以免重复执行非幂等命令
+                for (List<PendingCommand> commands : groups.values()) {
+                    fail(commands, e);
+                }
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void execute(Jedis jedis, List<PendingCommand> batch) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<?>> responses = new ArrayList<Response<?>>(batch.size());
+        for (PendingCommand pending : batch) {
+            responses.add(pending.command.queue(pipeline, pending.args));
+        }
+        pipeline.sync();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingCommand pending = batch.get(i);
+            try {
+                pending.future.complete(pending.command.convert(responses.get(i).get()));
+            } catch (JedisRedirectionException e) {
+                // slot已迁移，命令没有执行，交给集群连接按MOVED/ASK重定向
+                executeDirectly(pending);
+            } catch (RuntimeException e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void executeDirectly(PendingCommand pending) {
+        RedisConnection connection = delegate.getConnection();
+        try {
+            pending.future.complete(pending.method.invoke(connection, pending.args));
+        } catch (InvocationTargetException e) {
+            pending.future.completeExceptionally(e.getCause());
+        } catch (Exception e) {
+            pending.future.completeExceptionally(e);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void fail(List<PendingCommand> batch, Throwable e) {
+        for (PendingCommand pending : batch) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private void failAll(Throwable e) {
+        List<PendingCommand> remaining = new ArrayList<PendingCommand>();
+        queue.drainTo(remaining);
+        fail(remaining, e);
+    }
+
+    private RuntimeException translate(Throwable e) {
+        if (e instanceof RuntimeException) {
+            DataAccessException translated = delegate.translateExceptionIfPossible((RuntimeException) e);
+            return translated != null ? translated : (RuntimeException) e;
+        }
+        return new RedisSystemException(e.getMessage(), e);
+    }
+
+    private class Flusher implements Runnable {
+        @Override
+        public void run() {
+            List<PendingCommand> batch = new ArrayList<PendingCommand>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    PendingCommand first = running ? queue.take() : queue.poll();
+                    if (first == null) {
+                        break;
+                    }
+                    batch.add(first);
+                    // 取走已经在排队的命令，不额外等待
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    flush(batch);
+                } catch (InterruptedException e) {
+                    // destroy时中断等待，继续执行队列中剩余的命令后退出
+                } catch (RuntimeException e) {
+                    log.error("flush pipeline failed", e);
+                    fail(batch, e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个连接，可以合并的命令放入队列，其他命令绑定一个独占的连接后直接执行
+     */
+    private class AutoPipeliningConnection implements InvocationHandler {
+        private RedisConnection connection;
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                if ("equals".equals(name)) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(name)) {
+                    return System.identityHashCode(proxy);
+                }
+                return "AutoPipeliningConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+            if ("close".equals(name)) {
+                closed = true;
+                if (connection != null) {
+                    connection.close();
+                    connection = null;
+                }
+                return null;
+            }
+            if ("isClosed".equals(name)) {
+                return closed;
+            }
+            if (connection == null) {
+                if ("isPipelined".equals(name) || "isQueueing".equals(name) || "isSubscribed".equals(name)) {
+                    return false;
+                }
+                if ("getSubscription".equals(name)) {
+                    return null;
+                }
+                Command command = Command.of(method, args);
+                if (command != null) {
+                    return AutoPipeliningConnectionFactory.this.enqueue(command, method, args);
+                }
+                connection = delegate.getConnection();
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static class PendingCommand {
+        private final Command command;
+        private final Method method;
+        private final Object[] args;
+        private final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+        PendingCommand(Command command, Method method, Object[] args) {
+            this.command = command;
+            this.method = method;
+            this.args = args;
+        }
+
+        byte[] key() {
+            return command.key(args);
+        }
+    }
+
+    /**
+     * 可以合并的单key命令，对应 RedisConnection 的方法，结果转换为 RedisConnection 的返回类型
+     */
+    enum Command {
+        GET("get", byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.get((byte[]) args[0]);
+            }
+        },
+        SET("set", byte[].class, byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.set((byte[]) args[0], (byte[]) args[1]);
+            }
+
+            @Override
+            Object convert(Object result) {
+                return null;
+            }
+        },
+        SET_EX("setEx", byte[].class, long.class, byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.setex((byte[]) args[0], (int) ((Long) args[1]).longValue(), (byte[]) args[2]);
+            }
+
+            @Override
+            Object convert(Object result) {
+                return null;
+            }
+        },
+        P_SET_EX("pSetEx", byte[].class, long.class, byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.psetex((byte[]) args[0], (Long) args[1], (byte[]) args[2]);
+            }
+
+            @Override
+            Object convert(Object result) {
+                return null;
+            }
+        },
+        SET_NX("setNX", byte[].class, byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.setnx((byte[]) args[0], (byte[]) args[1]);
+            }
+
+            @Override
+            Object convert(Object result) {
+                return toBoolean(result);
+            }
+        },
+        EXISTS("exists", byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.exists((byte[]) args[0]);
+            }
+        },
+        DEL("del", byte[][].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.del(((byte[][]) args[0])[0]);
+            }
+
+            @Override
+            byte[] key(Object[] args) {
+                return ((byte[][]) args[0])[0];
+            }
+
+            @Override
+            boolean accepts(Object[] args) {
+                return ((byte[][]) args[0]).length == 1;
+            }
+        },
+        EXPIRE("expire", byte[].class, long.class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.expire((byte[]) args[0], (int) ((Long) args[1]).longValue());
+            }
+
+            @Override
+            Object convert(Object result) {
+                return toBoolean(result);
+            }
+        },
+        P_EXPIRE("pExpire", byte[].class, long.class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.pexpire((byte[]) args[0], (Long) args[1]);
+            }
+
+            @Override
+            Object convert(Object result) {
+                return toBoolean(result);
+            }
+        },
+        TTL("ttl", byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.ttl((byte[]) args[0]);
+            }
+        },
+        P_TTL("pTtl", byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.pttl((byte[]) args[0]);
+            }
+        },
+        INCR("incr", byte[].class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.incr((byte[]) args[0]);
+            }
+        },
+        INCR_BY("incrBy", byte[].class, long.class) {
+            @Override
+            Response<?> queue(Pipeline pipeline, Object[] args) {
+                return pipeline.incrBy((byte[]) args[0], (Long) args[1]);
+            }
+        };
+
+        private final String methodName;
+        private final Class<?>[] parameterTypes;
+
+        Command(String methodName, Class<?>... parameterTypes) {
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes;
+        }
+
+        abstract Response<?> queue(Pipeline pipeline, Object[] args);
+
+        Object convert(Object result) {
+            return result;
+        }
+
+        byte[] key(Object[] args) {
+            return (byte[]) args[0];
+        }
+
+        boolean accepts(Object[] args) {
+            return true;
+        }
+
+        static Command of(Method method, Object[] args) {
+            for (Command command : values()) {
+                if (command.methodName.equals(method.getName()) && Arrays.equals(command.parameterTypes, method.getParameterTypes())) {
+                    return command.accepts(args) ? command : null;
+                }
+            }
+            return null;
+        }
+
+        private static Boolean toBoolean(Object result) {
+            return result == null ? null : ((Long) result) == 1L;
+        }
+    }
+}
@@ -0,0 +1,906 @@
+package com.kyle.cache;
+
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 紧凑的二进制序列化
+ * <p>
+ * 每个值以一个类型字节开头，数字使用变长编码。对象按字段写入，同一次序列化中同一个类的类名和字段名只写一次，
+ * 之后用编号引用，列表中的对象只多出字段值。每个类的字段和构造方法解析一次后缓存；读取时按字段名匹配，
+ * 类增删字段后旧数据仍可读取。对象需要有无参构造方法（可以是私有的），否则按 JDK 序列化保存；不支持循环引用。
+ * <p>
+ * 读取时会按数据中的类名创建对象，只允许JDK基础类型和信任的包中的类，JDK序列化的内容同样检查；
+ * 写入不信任的类时直接失败，不会写入之后无法读取的值
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class BinaryRedisSerializer implements TypedRedisSerializer<Object> {
+    private static final byte FORMAT_VERSION = 1;
+    private static final int MAX_DEPTH = 256;
+    // 缓冲区超过该大小时用完即丢弃，避免线程长期持有大数组
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte SHORT = 5;
+    private static final byte BYTE = 6;
+    private static final byte CHAR = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte ENUM = 12;
+    private static final byte LIST = 13;
+    private static final byte SET = 14;
+    private static final byte MAP = 15;
+    private static final byte TYPED_COLLECTION = 16;
+    private static final byte TYPED_MAP = 17;
+    private static final byte ARRAY = 18;
+    private static final byte BIG_DECIMAL = 19;
+    private static final byte BIG_INTEGER = 20;
+    private static final byte DATE = 21;
+    private static final byte LOCAL_DATE_TIME = 22;
+    private static final byte LOCAL_DATE = 23;
+    private static final byte LOCAL_TIME = 24;
+    private static final byte INSTANT = 25;
+    private static final byte OBJECT = 26;
+    private static final byte JAVA = 27;
+
+    // 总是信任的包，不包括子包
+    private static final Set<String> JDK_PACKAGES = new HashSet<String>(Arrays.asList("java.lang", "java.math", "java.time", "java.sql",
+            "java.util", "java.util.concurrent", "java.util.concurrent.atomic"));
+
+    private static final ClassValue<ClassSchema> SCHEMAS = new ClassValue<ClassSchema>() {
+        @Override
+        protected ClassSchema computeValue(Class<?> type) {
+            return new ClassSchema(type);
+        }
+    };
+
+    private static final ThreadLocal<Output> OUTPUT = new ThreadLocal<Output>() {
+        @Override
+        protected Output initialValue() {
+            return new Output();
+        }
+    };
+
+    private final ClassLoader classLoader;
+    // 信任的包前缀，以.结尾，包括子包
+    private final List<String> trustedPackages = new ArrayList<String>();
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+
+    /**
+     * 只信任JDK基础类型
+     */
+    public BinaryRedisSerializer() {
+        this(Collections.<String>emptyList());
+    }
+
+    /**
+     * @param trustedPackages 除JDK基础类型外允许读写的类所在的包，包括子包
+     */
+    public BinaryRedisSerializer(Collection<String> trustedPackages) {
+        this(ClassUtils.getDefaultClassLoader(), trustedPackages);
+    }
+
+    public BinaryRedisSerializer(ClassLoader classLoader, Collection<String> trustedPackages) {
+        this.classLoader = classLoader;
+        for (String trustedPackage : trustedPackages) {
+            String prefix = trustedPackage.trim();
+            if (!prefix.isEmpty()) {
+                this.trustedPackages.add(prefix.endsWith(".") ? prefix : prefix + ".");
+            }
+        }
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Output output = OUTPUT.get();
+        output.reset();
+        try {
+            output.writeByte(FORMAT_VERSION);
+            writeValue(output, value, 0);
+            return output.toByteArray();
+        } catch (IllegalAccessException e) {
+            throw new SerializationException("Cannot serialize " + value.getClass().getName(), e);
+        } finally {
+            output.release();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return deserialize(bytes, 0, bytes.length, null);
+    }
+
+    /**
+     * 写入时已经带上了实际类型，目标类型不参与读取
+     */
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length, Class<?> type) throws SerializationException {
+        if (length == 0) {
+            return null;
+        }
+        if (bytes[offset] != FORMAT_VERSION) {
+            throw new SerializationException("Unknown binary cache format: " + bytes[offset]);
+        }
+        Input input = new Input(bytes, offset + 1, offset + length);
+        try {
+            return readValue(input, 0);
+        } catch (ReflectiveOperationException | IOException | RuntimeException e) {
+            if (e instanceof SerializationException) {
+                throw (SerializationException) e;
+            }
+            throw new SerializationException("Cannot deserialize cache value", e);
+        }
+    }
+
+    private void writeValue(Output out, Object value, int depth) throws IllegalAccessException {
+        if (depth > MAX_DEPTH) {
+            throw new SerializationException("Object graph too deep, cyclic references are not supported");
+        }
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INT);
+            out.writeVarLong((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeVarLong((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeInt(Float.floatToRawIntBits((Float) value));
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeVarLong((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (type == byte[].class) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BYTES);
+            out.writeVarInt(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeClass(out, ((Enum) value).getDeclaringClass());
+            out.writeString(((Enum) value).name());
+        } else if (value instanceof Collection) {
+            writeCollection(out, (Collection<?>) value, depth);
+        } else if (value instanceof Map) {
+            writeMap(out, (Map<?, ?>) value, depth);
+        } else if (type.isArray()) {
+            int length = Array.getLength(value);
+            out.writeByte(ARRAY);
+            writeClass(out, type.getComponentType());
+            out.writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(out, Array.get(value, i), depth + 1);
+            }
+        } else if (type == BigDecimal.class) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (type == BigInteger.class) {
+            out.writeByte(BIG_INTEGER);
+            out.writeString(value.toString());
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeVarLong(((Date) value).getTime());
+        } else if (type == LocalDateTime.class) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            out.writeByte(LOCAL_DATE_TIME);
+            out.writeVarLong(dateTime.toLocalDate().toEpochDay());
+            out.writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+        } else if (type == LocalDate.class) {
+            out.writeByte(LOCAL_DATE);
+            out.writeVarLong(((LocalDate) value).toEpochDay());
+        } else if (type == LocalTime.class) {
+            out.writeByte(LOCAL_TIME);
+            out.writeVarLong(((LocalTime) value).toNanoOfDay());
+        } else if (type == Instant.class) {
+            out.writeByte(INSTANT);
+            out.writeVarLong(((Instant) value).getEpochSecond());
+            out.writeVarLong(((Instant) value).getNano());
+        } else {
+            ClassSchema schema = SCHEMAS.get(type);
+            // NullValue依赖readResolve返回单例，按JDK序列化保存
+            if (schema.isFieldSerializable() && !(value instanceof NullValue)) {
+                writeObject(out, schema, value, depth);
+            } else if (value instanceof Serializable) {
+                out.writeByte(JAVA);
+                byte[] bytes = javaSerialize(value);
+                out.writeVarInt(bytes.length);
+                out.writeBytes(bytes, 0, bytes.length);
+            } else {
+                throw new SerializationException("Cannot serialize " + type.getName() + ": no no-arg constructor and not Serializable");
+            }
+        }
+    }
+
+    private void writeClass(Output out, Class<?> type) {
+        if (!isTrusted(type.getName())) {
+            throw untrusted(type.getName());
+        }
+        out.writeClass(type);
+    }
+
+    private void writeCollection(Output out, Collection<?> collection, int depth) throws IllegalAccessException {
+        Class<?> type = collection.getClass();
+        if (type == ArrayList.class) {
+            out.writeByte(LIST);
+        } else if (type == HashSet.class || type == LinkedHashSet.class) {
+            out.writeByte(SET);
+        } else if (SCHEMAS.get(type).hasConstructor() && !isComparatorCollection(collection)) {
+            out.writeByte(TYPED_COLLECTION);
+            writeClass(out, type);
+        } else {
+            // Arrays.asList、不可变集合等无法直接创建的类型按List或Set读取
+            out.writeByte(collection instanceof Set ? SET : LIST);
+        }
+        out.writeVarInt(collection.size());
+        for (Object item : collection) {
+            writeValue(out, item, depth + 1);
+        }
+    }
+
+    private void writeMap(Output out, Map<?, ?> map, int depth) throws IllegalAccessException {
+        Class<?> type = map.getClass();
+        if (type == HashMap.class || type == LinkedHashMap.class || !SCHEMAS.get(type).hasConstructor() || isComparatorMap(map)) {
+            out.writeByte(MAP);
+        } else {
+            out.writeByte(TYPED_MAP);
+            writeClass(out, type);
+        }
+        out.writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(out, entry.getKey(), depth + 1);
+            writeValue(out, entry.getValue(), depth + 1);
+        }
+    }
+
+    private void writeObject(Output out, ClassSchema schema, Object value, int depth) throws IllegalAccessException {
+        out.writeByte(OBJECT);
+        writeClass(out, schema.type);
+        if (out.described.add(schema.type)) {
+            // 类第一次出现时写出字段名，读取时按名字匹配
+            out.writeVarInt(schema.fields.length);
+            for (Field field : schema.fields) {
+                out.writeString(field.getName());
+            }
+        }
+        for (Field field : schema.fields) {
+            Class<?> fieldType = field.getType();
+            if (fieldType == int.class) {
+                out.writeByte(INT);
+                out.writeVarLong(field.getInt(value));
+            } else if (fieldType == long.class) {
+                out.writeByte(LONG);
+                out.writeVarLong(field.getLong(value));
+            } else if (fieldType == boolean.class) {
+                out.writeByte(field.getBoolean(value) ? TRUE : FALSE);
+            } else {
+                writeValue(out, field.get(value), depth + 1);
+            }
+        }
+    }
+
+    private Object readValue(Input in, int depth) throws ReflectiveOperationException, IOException {
+        if (depth > MAX_DEPTH) {
+            throw new SerializationException("Object graph too deep");
+        }
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) in.readVarLong();
+            case LONG:
+                return in.readVarLong();
+            case SHORT:
+                return (short) in.readVarLong();
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case STRING:
+                return in.readString();
+            case BYTES:
+                return in.readBytes(in.readVarInt());
+            case ENUM:
+                return readEnum(in.readClass(this), in.readString());
+            case LIST:
+                return readItems(in, new ArrayList<Object>(), depth);
+            case SET:
+                return readItems(in, new LinkedHashSet<Object>(), depth);
+            case TYPED_COLLECTION:
+                return readItems(in, newCollection(in.readClass(this).type), depth);
+            case MAP:
+                return readEntries(in, new LinkedHashMap<Object, Object>(), depth);
+            case TYPED_MAP:
+                return readEntries(in, newMap(in.readClass(this).type), depth);
+            case ARRAY:
+                return readArray(in, in.readClass(this).type, depth);
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case BIG_INTEGER:
+                return new BigInteger(in.readString());
+            case DATE:
+                return new Date(in.readVarLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.of(LocalDate.ofEpochDay(in.readVarLong()), LocalTime.ofNanoOfDay(in.readVarLong()));
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readVarLong());
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.readVarLong());
+            case INSTANT:
+                return Instant.ofEpochSecond(in.readVarLong(), in.readVarLong());
+            case OBJECT:
+                return readObject(in, depth);
+            case JAVA:
+                return javaDeserialize(in.readBytes(in.readVarInt()));
+            default:
+                throw new SerializationException("Unknown type tag " + tag + " at " + (in.position - 1));
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readEnum(ClassRef ref, String name) {
+        return Enum.valueOf((Class) ref.type, name);
+    }
+
+    /**
+     * 写入时记录的集合类型，类型已在resolveClass中检查
+     */
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Class<?> type) throws ReflectiveOperationException {
+        return (Collection<Object>) SCHEMAS.get(type).newInstance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> type) throws ReflectiveOperationException {
+        return (Map<Object, Object>) SCHEMAS.get(type).newInstance();
+    }
+
+    private Collection<Object> readItems(Input in, Collection<Object> collection, int depth) throws ReflectiveOperationException, IOException {
+        int size = in.readVarInt();
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(in, depth + 1));
+        }
+        return collection;
+    }
+
+    private Map<Object, Object> readEntries(Input in, Map<Object, Object> map, int depth) throws ReflectiveOperationException, IOException {
+        int size = in.readVarInt();
+        for (int i = 0; i < size; i++) {
+            map.put(readValue(in, depth + 1), readValue(in, depth + 1));
+        }
+        return map;
+    }
+
+    private Object readArray(Input in, Class<?> componentType, int depth) throws ReflectiveOperationException, IOException {
+        int length = in.readVarInt();
+        Object array = Array.newInstance(componentType, length);
+        for (int i = 0; i < length; i++) {
+            Object item = readValue(in, depth + 1);
+            Array.set(array, i, componentType.isPrimitive() ? coerce(componentType, item) : item);
+        }
+        return array;
+    }
+
+    private Object readObject(Input in, int depth) throws ReflectiveOperationException, IOException {
+        ClassRef ref = in.readClass(this);
+        if (ref.fields == null) {
+            int count = in.readVarInt();
+            ClassSchema schema = SCHEMAS.get(ref.type);
+            Field[] fields = new Field[count];
+            for (int i = 0; i < count; i++) {
+                fields[i] = schema.getField(in.readString());
+            }
+            ref.fields = fields;
+        }
+        Object value = SCHEMAS.get(ref.type).newInstance();
+        for (Field field : ref.fields) {
+            Object fieldValue = readValue(in, depth + 1);
+            if (field == null) {
+                // 本地类已经没有这个字段
+                continue;
+            }
+            Class<?> fieldType = field.getType();
+            if (fieldType.isPrimitive()) {
+                if (fieldValue != null) {
+                    field.set(value, coerce(fieldType, fieldValue));
+                }
+            } else if (fieldValue == null || fieldType.isInstance(fieldValue)) {
+                field.set(value, fieldValue);
+            } else if (fieldValue instanceof Number && Number.class.isAssignableFrom(fieldType)) {
+                field.set(value, coerce(fieldType, fieldValue));
+            } else {
+                throw new SerializationException("Cannot assign " + fieldValue.getClass().getName() + " to " + field);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 字段类型变化时在数字类型之间转换
+     */
+    private static Object coerce(Class<?> type, Object value) {
+        if (!(value instanceof Number)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        } else if (type == long.class || type == Long.class) {
+            return number.longValue();
+        } else if (type == double.class || type == Double.class) {
+            return number.doubleValue();
+        } else if (type == float.class || type == Float.class) {
+            return number.floatValue();
+        } else if (type == short.class || type == Short.class) {
+            return number.shortValue();
+        } else if (type == byte.class || type == Byte.class) {
+            return number.byteValue();
+        }
+        return value;
+    }
+
+    private static boolean isComparatorCollection(Collection<?> collection) {
+        return collection instanceof java.util.SortedSet && ((java.util.SortedSet<?>) collection).comparator() != null;
+    }
+
+    private static boolean isComparatorMap(Map<?, ?> map) {
+        return map instanceof java.util.SortedMap && ((java.util.SortedMap<?, ?>) map).comparator() != null;
+    }
+
+    private byte[] javaSerialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            ObjectOutputStream stream = new ObjectOutputStream(bytes) {
+                // 抛出IOException时ObjectOutputStream会尝试把异常写入流中，这里直接抛出SerializationException
+                @Override
+                protected void annotateClass(Class<?> type) {
+                    if (!isTrusted(type.getName())) {
+                        throw untrusted(type.getName());
+                    }
+                }
+
+                @Override
+                protected void annotateProxyClass(Class<?> type) {
+                    for (Class<?> proxyInterface : type.getInterfaces()) {
+                        annotateClass(proxyInterface);
+                    }
+                }
+            };
+            stream.writeObject(value);
+            stream.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize " + value.getClass().getName(), e);
+        }
+    }
+
+    private Object javaDeserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                checkTrusted(desc.getName());
+                return ClassUtils.forName(desc.getName(), classLoader);
+            }
+
+            @Override
+            protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+                for (String proxyInterface : interfaces) {
+                    checkTrusted(proxyInterface);
+                }
+                return super.resolveProxyClass(interfaces);
+            }
+        };
+        return stream.readObject();
+    }
+
+    Class<?> resolveClass(String name) throws ClassNotFoundException {
+        Class<?> type = classes.get(name);
+        if (type == null) {
+            // 加载类之前检查，不信任的类不会被初始化
+            if (!isTrusted(name)) {
+                throw untrusted(name);
+            }
+            type = ClassUtils.forName(name, classLoader);
+            classes.putIfAbsent(name, type);
+        }
+        return type;
+    }
+
+    private void checkTrusted(String className) throws InvalidClassException {
+        if (!isTrusted(className)) {
+            throw new InvalidClassException(className, "not in trusted packages");
+        }
+    }
+
+    /**
+     * @param className 类名，数组按元素类型判断
+     */
+    private boolean isTrusted(String className) {
+        if (className.startsWith("[")) {
+            int start = className.lastIndexOf('[') + 1;
+            // 基本类型数组
+            return className.charAt(start) != 'L' || isTrusted(className.substring(start + 1, className.length() - 1));
+        }
+        if (ClassUtils.resolvePrimitiveClassName(className) != null || NullValue.class.getName().equals(className)) {
+            return true;
+        }
+        int dot = className.lastIndexOf('.');
+        if (dot > 0 && JDK_PACKAGES.contains(className.substring(0, dot))) {
+            return true;
+        }
+        for (String trustedPackage : trustedPackages) {
+            if (className.startsWith(trustedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SerializationException untrusted(String className) {
+        return new SerializationException("Class " + className + " is not in trusted packages of the binary cache serializer");
+    }
+
+    /**
+     * 类的字段和构造方法，解析一次后缓存
+     */
+    private static final class ClassSchema {
+        private final Class<?> type;
+        private final Field[] fields;
+        private final Map<String, Field> fieldsByName = new HashMap<String, Field>();
+        private final Constructor<?> constructor;
+
+        ClassSchema(Class<?> type) {
+            this.type = type;
+            this.constructor = findConstructor(type);
+            List<Field> fields = new ArrayList<Field>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                if (current.getName().startsWith("java.")) {
+                    break;
+                }
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                            || fieldsByName.containsKey(field.getName())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                    fieldsByName.put(field.getName(), field);
+                }
+            }
+            fields.sort(new Comparator<Field>() {
+                @Override
+                public int compare(Field o1, Field o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            this.fields = fields.toArray(new Field[fields.size()]);
+        }
+
+        private static Constructor<?> findConstructor(Class<?> type) {
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || (type.isMemberClass() && !Modifier.isStatic(type.getModifiers()))) {
+                return null;
+            }
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        boolean hasConstructor() {
+            return constructor != null;
+        }
+
+        /**
+         * JDK中的类按字段读写依赖内部实现，只对自定义类按字段处理
+         */
+        boolean isFieldSerializable() {
+            return constructor != null && !type.getName().startsWith("java.");
+        }
+
+        Field getField(String name) {
+            return fieldsByName.get(name);
+        }
+
+        Object newInstance() throws ReflectiveOperationException {
+            if (constructor == null) {
+                throw new SerializationException("No no-arg constructor: " + type.getName());
+            }
+            return constructor.newInstance();
+        }
+    }
+
+    /**
+     * 一次读取中类的引用，记录写入方的字段顺序
+     */
+    private static final class ClassRef {
+        private final Class<?> type;
+        private Field[] fields;
+
+        ClassRef(Class<?> type) {
+            this.type = type;
+        }
+    }
+
+    private static final class Output {
+        private byte[] buffer = new byte[4096];
+        private int position;
+        private final Map<Class<?>, Integer> classIds = new HashMap<Class<?>, Integer>();
+        // 已经写出字段名的类
+        private final Set<Class<?>> described = new HashSet<Class<?>>();
+
+        void reset() {
+            position = 0;
+            classIds.clear();
+            described.clear();
+        }
+
+        void release() {
+            if (buffer.length > MAX_RETAINED_BUFFER) {
+                buffer = new byte[4096];
+            }
+            classIds.clear();
+            described.clear();
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * zigzag变长编码，绝对值小的负数也只占少量字节
+         */
+        void writeVarLong(long value) {
+            ensure(10);
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            ensure(5 + length);
+            int start = position;
+            writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // 非ASCII字符串按UTF-8写入，长度前加标记位区分
+                    position = start;
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(-bytes.length - 1);
+                    writeBytes(bytes, 0, bytes.length);
+                    return;
+                }
+                buffer[position++] = (byte) c;
+            }
+        }
+
+        /**
+         * 类第一次出现时写类名，之后写编号
+         */
+        void writeClass(Class<?> type) {
+            Integer id = classIds.get(type);
+            if (id != null) {
+                writeVarInt(id + 1);
+                return;
+            }
+            classIds.put(type, classIds.size());
+            writeVarInt(0);
+            writeString(type.getName());
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+        private final int limit;
+        private final List<ClassRef> classes = new ArrayList<ClassRef>();
+
+        Input(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        byte readByte() {
+            if (position >= limit) {
+                throw new SerializationException("Unexpected end of binary cache value");
+            }
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int length) {
+            if (position + length > limit) {
+                throw new SerializationException("Unexpected end of binary cache value");
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        int readInt() {
+            return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8) | (readByte() & 0xFF);
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        int readVarInt() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new SerializationException("Malformed varint");
+        }
+
+        long readVarLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new SerializationException("Malformed varlong");
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length < 0) {
+                int utf8Length = -length - 1;
+                if (position + utf8Length > limit) {
+                    throw new SerializationException("Unexpected end of binary cache value");
+                }
+                String value = new String(buffer, position, utf8Length, StandardCharsets.UTF_8);
+                position += utf8Length;
+                return value;
+            }
+            if (position + length > limit) {
+                throw new SerializationException("Unexpected end of binary cache value");
+            }
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) buffer[position++];
+            }
+            return new String(chars);
+        }
+
+        ClassRef readClass(BinaryRedisSerializer serializer) throws ClassNotFoundException {
+            int id = readVarInt();
+            if (id > 0) {
+                return classes.get(id - 1);
+            }
+            ClassRef ref = new ClassRef(serializer.resolveClass(readString()));
+            classes.add(ref);
+            return ref;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.kyle.cache;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缓存异步操作使用的I/O线程池
+ * <p>
+ * 线程数和队列长度固定，队列满时立即返回失败的Future而不是阻塞调用方；
+ * 超过超时时间未完成的Future以TimeoutException结束，正在执行的Redis调用不会被中断，由连接的超时时间兜底
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheAsyncExecutor {
+    private static final AtomicInteger POOL_IDS = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor timer;
+    //超时时间-毫秒，0表示不限制
+    private final long timeoutMillis;
+
+    /**
+     * @param threads       I/O线程数
+     * @param queueCapacity 等待执行的任务数上限
+     * @param timeoutMillis 超时时间-毫秒，0表示不限制
+     */
+    public CacheAsyncExecutor(int threads, int queueCapacity, long timeoutMillis) {
+        Assert.isTrue(threads > 0, "threads must be greater than 0");
+        Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0");
+        final int poolId = POOL_IDS.incrementAndGet();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "cache-io-" + poolId + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "cache-io-timeout-" + poolId);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // 按时完成的操作会取消超时任务，取消后立即移出队列
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timeoutMillis = Math.max(timeoutMillis, 0L);
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * 在I/O线程中执行，使用默认的超时时间
+     *
+     * @param task
+     * @return 队列已满时返回以RejectedExecutionException结束的Future
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return submit(task, timeoutMillis);
+    }
+
+    /**
+     * 在I/O线程中执行
+     *
+     * @param task
+     * @param timeoutMillis 超时时间-毫秒，0表示不限制
+     * @return 队列已满时返回以RejectedExecutionException结束的Future
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> task, long timeoutMillis) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final Future<?> running;
+        try {
+            running = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone()) {
+                        // 排队期间已超时或被取消
+                        return;
+                    }
+                    try {
+                        future.complete(task.call());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (timeoutMillis > 0L) {
+            final long timeout = timeoutMillis;
+            final ScheduledFuture<?> timeoutTask = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.completeExceptionally(new TimeoutException("Cache operation timed out after " + timeout + "ms"))) {
+                        // 还在排队的任务直接移出队列，已经开始的等待Redis调用自己结束
+                        running.cancel(false);
+                        executor.remove((Runnable) running);
+                    }
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((value, error) -> timeoutTask.cancel(false));
+        }
+        return future;
+    }
+
+    /**
+     * 在当前线程执行，结果包装为已完成的Future，没有配置线程池时使用
+     *
+     * @param task
+     * @return
+     */
+    public static <T> CompletableFuture<T> callNow(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            future.complete(task.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 正在排队的任务数
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 不再接受新任务，已提交的任务继续执行
+     */
+    public void shutdown() {
+        executor.shutdown();
+        timer.shutdown();
+    }
+}
@@ -0,0 +1,120 @@
+package com.kyle.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存的版本号
+ * <p>
+ * 版本号保存在 Redis 的 [缓存名]~generation 中并在本地缓存，作为key前缀的一部分。清空缓存时只需要把版本号加一，
+ * 旧版本的key不会再被访问，随过期时间自然淘汰。版本号变化通过频道通知其他节点，
+ * 本地缓存的版本号超过刷新间隔后也会重新读取，避免错过通知后一直使用旧版本。
+ * 刷新前仍可能按旧版本写入，不过期的缓存在写入后通过 {@link #load(String)} 确认版本号
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheGenerations implements MessageListener {
+    private static Logger log = LoggerFactory.getLogger(CacheGenerations.class);
+
+    private static final String GENERATION_SUFFIX = "~generation";
+
+    private final StringRedisSerializer serializer = new StringRedisSerializer();
+    private final RedisOperations<?, ?> redisOperations;
+    private final byte[] channel;
+    private final long refreshMillis;
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    /**
+     * @param channel       版本号变化的通知频道
+     * @param refreshMillis 本地版本号的刷新间隔-毫秒
+     */
+    public CacheGenerations(RedisOperations<?, ?> redisOperations, RedisMessageListenerContainer listenerContainer, String channel, long refreshMillis) {
+        this.redisOperations = redisOperations;
+        this.channel = serializer.serialize(channel);
+        this.refreshMillis = refreshMillis;
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    /**
+     * 缓存当前的版本号，没有时为0
+     *
+     * @param cacheName
+     * @return
+     */
+    public long get(final String cacheName) {
+        Generation generation = generations.get(cacheName);
+        if (generation != null && generation.loadedAt + refreshMillis > System.currentTimeMillis()) {
+            return generation.value;
+        }
+        return load(cacheName);
+    }
+
+    /**
+     * 从 Redis 读取当前版本号并更新本地缓存，不使用本地缓存的值
+     *
+     * @param cacheName
+     * @return
+     */
+    public long load(final String cacheName) {
+        byte[] value = redisOperations.execute((RedisCallback<byte[]>) connection -> connection.get(getGenerationKey(cacheName)));
+        long current = value == null ? 0L : Long.parseLong(serializer.deserialize(value));
+        update(cacheName, current);
+        return current;
+    }
+
+    /**
+     * 版本号加一并通知其他节点
+     *
+     * @param cacheName
+     * @return 新的版本号
+     */
+    public long increment(final String cacheName) {
+        final byte[] name = serializer.serialize(cacheName);
+        Long current = redisOperations.execute((RedisCallback<Long>) connection -> connection.incr(getGenerationKey(cacheName)));
+        update(cacheName, current);
+        try {
+            redisOperations.execute((RedisCallback<Long>) connection -> connection.publish(channel, name));
+        } catch (RuntimeException e) {
+            // 其他节点最多在刷新间隔后读到新的版本号
+            log.warn("publish cache generation failed: {}", cacheName, e);
+        }
+        return current;
+    }
+
+    private void update(String cacheName, long value) {
+        generations.put(cacheName, new Generation(value));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        byte[] body = message.getBody();
+        if (body != null) {
+            generations.remove(serializer.deserialize(body));
+        }
+    }
+
+    private byte[] getGenerationKey(String cacheName) {
+        return serializer.serialize(cacheName + GENERATION_SUFFIX);
+    }
+
+    private static class Generation {
+        private final long value;
+        private final long loadedAt = System.currentTimeMillis();
+
+        Generation(long value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.kyle.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个缓存的运行统计，每次缓存操作都会记录，计数使用LongAdder，耗时使用无锁直方图
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheMetrics {
+    //命中次数，含本地缓存命中
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    //合并到本节点其他线程读取的次数，不计入命中和未命中
+    private final LongAdder coalesced = new LongAdder();
+    //本地缓存命中次数
+    private final LongAdder nearCacheHits = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder clears = new LongAdder();
+    //调用加载方法的次数，含后台刷新
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    //后台刷新次数
+    private final LongAdder refreshes = new LongAdder();
+    private final LatencyHistogram redisReadLatency = new LatencyHistogram();
+    private final LatencyHistogram redisWriteLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram lockWaitLatency = new LatencyHistogram();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordHits(int count) {
+        hits.add(count);
+    }
+
+    void recordNearCacheHit() {
+        nearCacheHits.increment();
+        hits.increment();
+    }
+
+    void recordNearCacheHits(int count) {
+        nearCacheHits.add(count);
+        hits.add(count);
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    void recordPuts(int count) {
+        puts.add(count);
+    }
+
+    void recordEvictions(int count) {
+        evictions.add(count);
+    }
+
+    void recordClear() {
+        clears.increment();
+    }
+
+    void recordLoad(long nanos, boolean success) {
+        loads.increment();
+        if (!success) {
+            loadFailures.increment();
+        }
+        loadLatency.record(nanos);
+    }
+
+    void recordRefresh() {
+        refreshes.increment();
+    }
+
+    void recordRedisRead(long nanos) {
+        redisReadLatency.record(nanos);
+    }
+
+    void recordRedisWrite(long nanos) {
+        redisWriteLatency.record(nanos);
+    }
+
+    void recordLockWait(long nanos) {
+        lockWaitLatency.record(nanos);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getNearCacheHits() {
+        return nearCacheHits.sum();
+    }
+
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getClears() {
+        return clears.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    public LatencyHistogram getRedisReadLatency() {
+        return redisReadLatency;
+    }
+
+    public LatencyHistogram getRedisWriteLatency() {
+        return redisWriteLatency;
+    }
+
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+
+    public LatencyHistogram getLockWaitLatency() {
+        return lockWaitLatency;
+    }
+
+    /**
+     * 当前统计值的快照
+     *
+     * @param cacheName
+     * @param compressionStats 压缩统计，可以为null
+     * @return
+     */
+    public CacheMetricsSnapshot snapshot(String cacheName, CompressionStats compressionStats) {
+        return new CacheMetricsSnapshot(cacheName, this, compressionStats);
+    }
+}
@@ -0,0 +1,87 @@
+package com.kyle.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把缓存统计注册为MBean：com.kyle.cache:type=CacheMetrics,name=[默认缓存名]
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheMetricsExporter implements CacheMetricsMXBean, InitializingBean, DisposableBean {
+    private static Logger log = LoggerFactory.getLogger(CacheMetricsExporter.class);
+
+    private final ExtendRedisCacheManager cacheManager;
+    private final ObjectName objectName;
+    private final MBeanServer mBeanServer;
+    private volatile boolean registered;
+
+    public CacheMetricsExporter(ExtendRedisCacheManager cacheManager, String name) {
+        this(cacheManager, name, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public CacheMetricsExporter(ExtendRedisCacheManager cacheManager, String name, MBeanServer mBeanServer) {
+        this.cacheManager = cacheManager;
+        this.mBeanServer = mBeanServer;
+        try {
+            this.objectName = new ObjectName("com.kyle.cache:type=CacheMetrics,name=" + ObjectName.quote(name == null ? "default" : name));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cache metrics name: " + name, e);
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        try {
+            mBeanServer.registerMBean(this, objectName);
+            registered = true;
+        } catch (InstanceAlreadyExistsException e) {
+            // 同一进程中有多个同名的缓存配置时只注册第一个，统计仍可以通过ExtendRedisCacheManager读取
+            log.warn("MBean {} already registered, skip", objectName);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (registered) {
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (InstanceNotFoundException e) {
+                // 已被其他地方注销
+            }
+            registered = false;
+        }
+    }
+
+    @Override
+    public List<String> getCacheNames() {
+        return new ArrayList<>(cacheManager.getMetricsCacheNames());
+    }
+
+    @Override
+    public Map<String, CacheMetricsSnapshot> getSnapshots() {
+        return cacheManager.getMetricsSnapshots();
+    }
+
+    @Override
+    public CacheMetricsSnapshot getSnapshot(String cacheName) {
+        return cacheManager.getMetricsSnapshot(cacheName);
+    }
+}
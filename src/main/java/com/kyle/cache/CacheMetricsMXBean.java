@@ -0,0 +1,29 @@
+package com.kyle.cache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通过JMX查看各缓存的统计
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public interface CacheMetricsMXBean {
+
+    /**
+     * 已创建的缓存名
+     */
+    List<String> getCacheNames();
+
+    /**
+     * 所有缓存的统计，key为缓存名
+     */
+    Map<String, CacheMetricsSnapshot> getSnapshots();
+
+    /**
+     * 单个缓存的统计，缓存不存在时返回null
+     */
+    CacheMetricsSnapshot getSnapshot(String cacheName);
+}
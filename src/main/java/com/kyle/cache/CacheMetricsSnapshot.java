@@ -0,0 +1,136 @@
+package com.kyle.cache;
+
+/**
+ * 缓存统计在某一时刻的值，只读，可以直接通过JMX展示
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheMetricsSnapshot {
+    private final String cacheName;
+    private final long hits;
+    private final long misses;
+    private final long coalesced;
+    private final long nearCacheHits;
+    private final long puts;
+    private final long evictions;
+    private final long clears;
+    private final long loads;
+    private final long loadFailures;
+    private final long refreshes;
+    private final LatencyHistogram.Snapshot redisRead;
+    private final LatencyHistogram.Snapshot redisWrite;
+    private final LatencyHistogram.Snapshot load;
+    private final LatencyHistogram.Snapshot lockWait;
+    private final long compressedCount;
+    private final double compressionRatio;
+
+    CacheMetricsSnapshot(String cacheName, CacheMetrics metrics, CompressionStats compressionStats) {
+        this.cacheName = cacheName;
+        this.hits = metrics.getHits();
+        this.misses = metrics.getMisses();
+        this.coalesced = metrics.getCoalesced();
+        this.nearCacheHits = metrics.getNearCacheHits();
+        this.puts = metrics.getPuts();
+        this.evictions = metrics.getEvictions();
+        this.clears = metrics.getClears();
+        this.loads = metrics.getLoads();
+        this.loadFailures = metrics.getLoadFailures();
+        this.refreshes = metrics.getRefreshes();
+        this.redisRead = metrics.getRedisReadLatency().snapshot();
+        this.redisWrite = metrics.getRedisWriteLatency().snapshot();
+        this.load = metrics.getLoadLatency().snapshot();
+        this.lockWait = metrics.getLockWaitLatency().snapshot();
+        this.compressedCount = compressionStats != null ? compressionStats.getCompressedCount() : 0L;
+        this.compressionRatio = compressionStats != null ? compressionStats.getCompressionRatio() : 1D;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 合并到本节点其他线程读取的次数，结果与那次读取相同，不计入命中率
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * 命中率，没有读取过时为0
+     *
+     * @return
+     */
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0L ? 0D : (double) hits / requests;
+    }
+
+    public long getNearCacheHits() {
+        return nearCacheHits;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getClears() {
+        return clears;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    public LatencyHistogram.Snapshot getRedisRead() {
+        return redisRead;
+    }
+
+    public LatencyHistogram.Snapshot getRedisWrite() {
+        return redisWrite;
+    }
+
+    public LatencyHistogram.Snapshot getLoad() {
+        return load;
+    }
+
+    public LatencyHistogram.Snapshot getLockWait() {
+        return lockWait;
+    }
+
+    public long getCompressedCount() {
+        return compressedCount;
+    }
+
+    public double getCompressionRatio() {
+        return compressionRatio;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: hits=%d, misses=%d, hitRatio=%.3f, coalesced=%d, nearCacheHits=%d, puts=%d, evictions=%d, clears=%d, loads=%d, loadFailures=%d, refreshes=%d, redisRead=[%s], redisWrite=[%s], load=[%s], lockWait=[%s]",
+                cacheName, hits, misses, getHitRatio(), coalesced, nearCacheHits, puts, evictions, clears, loads, loadFailures, refreshes,
+                redisRead, redisWrite, load, lockWait);
+    }
+}
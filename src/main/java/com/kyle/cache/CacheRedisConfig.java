@@ -3,6 +3,9 @@ package com.kyle.cache;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author carroll
  * @Date 2017-07-25 18:06
@@ -10,6 +13,9 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties(prefix = "cache.redis")
 public class CacheRedisConfig {
+    public static final String CLIENT_JEDIS = "jedis";
+    public static final String CLIENT_LETTUCE = "lettuce";
+
     private boolean enable;
     private String host;
     private int port;
@@ -21,9 +27,34 @@ public class CacheRedisConfig {
     private int timeout;
     private String cacheName;
     private long defaultExpiration = 0;
+    //过期时间随机浮动比例，如0.1表示±10%，避免同一批写入的key同时过期
+    private double expirationJitter = 0;
     private String clusterNodes;
     private boolean clusterEnable;
     private boolean usePrefix = true;
+    //key前缀中是否带上缓存的版本号，开启后清空缓存只需要修改版本号
+    private boolean generationEnable = false;
+    //本地缓存的版本号刷新间隔-毫秒
+    private long generationRefreshMillis = 5000;
+    //缓存值的默认序列化方式：jackson、binary、jdk或RedisSerializer实现类名
+    private String serializer = CacheSerializers.JACKSON;
+    //binary序列化允许读写的类所在的包，多个用逗号分隔，包括子包；java.lang、java.util等JDK基础类型总是允许
+    private String trustedPackages;
+    //异步操作的I/O线程数
+    private int asyncThreads = 8;
+    //异步操作排队的任务数上限，超过时直接返回失败
+    private int asyncQueueCapacity = 1024;
+    //异步操作的超时时间-毫秒，0表示不限制
+    private long asyncTimeoutMillis = 2000;
+    //Redis客户端：jedis（连接池）或lettuce（共享一个多路复用的连接，需要引入lettuce依赖）
+    private String client = CLIENT_JEDIS;
+    //是否把多个线程并发的单key命令自动合并为pipeline执行，只对jedis生效，lettuce的共享连接本身就是多路复用的
+    private boolean autoPipelineEnable = false;
+    //执行合并后pipeline的连接数
+    private int autoPipelineConnections = 2;
+    //每个pipeline最多包含的命令数
+    private int autoPipelineMaxBatch = 256;
+    private Map<String, CacheSettings> caches = new HashMap<>();
 
     public boolean isEnable() {
         return enable;
@@ -136,4 +167,108 @@ public class CacheRedisConfig {
     public void setUsePrefix(boolean usePrefix) {
         this.usePrefix = usePrefix;
     }
+
+    public Map<String, CacheSettings> getCaches() {
+        return caches;
+    }
+
+    public void setCaches(Map<String, CacheSettings> caches) {
+        this.caches = caches;
+    }
+
+    public boolean isGenerationEnable() {
+        return generationEnable;
+    }
+
+    public void setGenerationEnable(boolean generationEnable) {
+        this.generationEnable = generationEnable;
+    }
+
+    public long getGenerationRefreshMillis() {
+        return generationRefreshMillis;
+    }
+
+    public void setGenerationRefreshMillis(long generationRefreshMillis) {
+        this.generationRefreshMillis = generationRefreshMillis;
+    }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = serializer;
+    }
+
+    public String getTrustedPackages() {
+        return trustedPackages;
+    }
+
+    public void setTrustedPackages(String trustedPackages) {
+        this.trustedPackages = trustedPackages;
+    }
+
+    public double getExpirationJitter() {
+        return expirationJitter;
+    }
+
+    public void setExpirationJitter(double expirationJitter) {
+        this.expirationJitter = expirationJitter;
+    }
+
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public long getAsyncTimeoutMillis() {
+        return asyncTimeoutMillis;
+    }
+
+    public void setAsyncTimeoutMillis(long asyncTimeoutMillis) {
+        this.asyncTimeoutMillis = asyncTimeoutMillis;
+    }
+
+    public String getClient() {
+        return client;
+    }
+
+    public void setClient(String client) {
+        this.client = client;
+    }
+
+    public boolean isAutoPipelineEnable() {
+        return autoPipelineEnable;
+    }
+
+    public void setAutoPipelineEnable(boolean autoPipelineEnable) {
+        this.autoPipelineEnable = autoPipelineEnable;
+    }
+
+    public int getAutoPipelineConnections() {
+        return autoPipelineConnections;
+    }
+
+    public void setAutoPipelineConnections(int autoPipelineConnections) {
+        this.autoPipelineConnections = autoPipelineConnections;
+    }
+
+    public int getAutoPipelineMaxBatch() {
+        return autoPipelineMaxBatch;
+    }
+
+    public void setAutoPipelineMaxBatch(int autoPipelineMaxBatch) {
+        this.autoPipelineMaxBatch = autoPipelineMaxBatch;
+    }
 }
@@ -0,0 +1,92 @@
+package com.kyle.cache;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按名称选择缓存值的序列化方式
+ * <ul>
+ * <li>jackson：与RedisTemplate相同格式的Jackson序列化，默认值</li>
+ * <li>binary：{@link BinaryRedisSerializer}，只读写JDK基础类型和信任的包中的类</li>
+ * <li>jdk：JdkSerializationRedisSerializer</li>
+ * <li>其他：RedisSerializer实现类的全限定名，需要有无参构造方法</li>
+ * </ul>
+ * 同名的序列化实例在所有缓存间共享
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheSerializers {
+    public static final String JACKSON = "jackson";
+    public static final String BINARY = "binary";
+    public static final String JDK = "jdk";
+
+    private final ConcurrentMap<String, RedisSerializer<?>> serializers = new ConcurrentHashMap<>();
+
+    /**
+     * @param jacksonSerializer jackson对应的序列化，为null时jackson表示使用RedisTemplate上的valueSerializer
+     */
+    public CacheSerializers(RedisSerializer<?> jacksonSerializer) {
+        this(jacksonSerializer, Collections.<String>emptyList());
+    }
+
+    /**
+     * @param jacksonSerializer jackson对应的序列化，为null时jackson表示使用RedisTemplate上的valueSerializer
+     * @param trustedPackages   binary序列化允许读写的类所在的包
+     */
+    public CacheSerializers(RedisSerializer<?> jacksonSerializer, Collection<String> trustedPackages) {
+        if (jacksonSerializer != null) {
+            serializers.put(JACKSON, jacksonSerializer);
+        }
+        serializers.put(BINARY, new BinaryRedisSerializer(trustedPackages));
+        serializers.put(JDK, new JdkSerializationRedisSerializer());
+    }
+
+    /**
+     * 注册自定义名称的序列化方式
+     *
+     * @param name
+     * @param serializer
+     */
+    public void register(String name, RedisSerializer<?> serializer) {
+        serializers.put(name, serializer);
+    }
+
+    /**
+     * @param name 名称或RedisSerializer实现类名
+     * @return 为null时使用RedisTemplate上的valueSerializer
+     */
+    public RedisSerializer<?> get(String name) {
+        if (StringUtils.isEmpty(name)) {
+            return null;
+        }
+        String key = name.trim();
+        RedisSerializer<?> serializer = serializers.get(key);
+        if (serializer != null || JACKSON.equals(key)) {
+            return serializer;
+        }
+        return serializers.computeIfAbsent(key, this::instantiate);
+    }
+
+    private RedisSerializer<?> instantiate(String className) {
+        Class<?> type;
+        try {
+            type = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalArgumentException(String.format("Unknown cache serializer: '%s'", className), e);
+        }
+        if (!RedisSerializer.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(String.format("Cache serializer '%s' must implement RedisSerializer", className));
+        }
+        return (RedisSerializer<?>) BeanUtils.instantiateClass(type);
+    }
+}
@@ -0,0 +1,231 @@
+package com.kyle.cache;
+
+/**
+ * 单个缓存的配置，通过 cache.redis.caches.[缓存名].* 配置
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CacheSettings {
+
+    //是否开启本地一级缓存
+    private boolean nearCacheEnable = false;
+    //本地缓存最大条目数
+    private int nearCacheMaxSize = 1000;
+    //本地缓存过期时间-秒
+    private long nearCacheExpireSeconds = 60;
+    //单个key加载锁的租期-毫秒，加载超过租期后其他节点可以重新加载
+    private long loadLockLeaseMillis = 2000;
+    //清空缓存时每批SCAN/删除的key数量
+    private int clearBatchSize = 500;
+    //清空缓存时每批之间的停顿-毫秒，用于降低对Redis的压力，0表示不停顿
+    private long clearBatchPauseMillis = 0;
+    //清空缓存时每删除多少个key打印一次进度，0表示不打印
+    private long clearProgressLogInterval = 100000;
+    //是否在后台线程中清空缓存，开启后clear()立即返回
+    private boolean clearInBackground = false;
+    //XFetch提前刷新系数，越大越早刷新，0表示不开启，一般取1
+    private double earlyRefreshBeta = 0;
+    //存活时间超过该比例后在后台刷新，例如0.8，0表示不开启
+    private double refreshAheadFactor = 0;
+    //过期后继续使用旧值的宽限时间-秒，宽限时间内返回旧值并在后台刷新，0表示不开启
+    private long staleGraceSeconds = 0;
+    //序列化结果达到该字节数时压缩后保存，0表示不压缩
+    private int compressThreshold = 0;
+    //值的序列化方式：jackson、binary、jdk或RedisSerializer实现类名，为空时使用全局配置
+    private String serializer;
+    //过期时间-秒，设置后优先于缓存名中#后面的过期时间，0表示不过期
+    private Long expiration;
+    //过期时间随机浮动比例，如0.1表示±10%，为空时使用全局配置
+    private Double expirationJitter;
+    //滑动过期：命中时延长过期时间，命中的key在后台合并后批量执行EXPIRE；值中保存附加信息时同时延长其中的逻辑过期时间
+    private boolean slidingExpiration = false;
+    //滑动过期批量执行的间隔-毫秒
+    private long slidingFlushMillis = 1000;
+    //写后回写：put先写入内存缓冲区，同一个key只保留最后一次写入，按间隔或达到批量大小时批量写入Redis
+    private boolean writeBehind = false;
+    //回写缓冲区写入Redis的间隔-毫秒
+    private long writeBehindFlushMillis = 200;
+    //回写缓冲区每批写入的key数量，缓冲区达到该数量时立即写入
+    private int writeBehindBatchSize = 500;
+    //回写缓冲区的key数上限，达到上限时put在调用线程中同步写入缓冲区中的数据
+    private int writeBehindMaxPending = 10000;
+
+    public boolean isNearCacheEnable() {
+        return nearCacheEnable;
+    }
+
+    public void setNearCacheEnable(boolean nearCacheEnable) {
+        this.nearCacheEnable = nearCacheEnable;
+    }
+
+    public int getNearCacheMaxSize() {
+        return nearCacheMaxSize;
+    }
+
+    public void setNearCacheMaxSize(int nearCacheMaxSize) {
+        this.nearCacheMaxSize = nearCacheMaxSize;
+    }
+
+    public long getNearCacheExpireSeconds() {
+        return nearCacheExpireSeconds;
+    }
+
+    public void setNearCacheExpireSeconds(long nearCacheExpireSeconds) {
+        this.nearCacheExpireSeconds = nearCacheExpireSeconds;
+    }
+
+    public long getLoadLockLeaseMillis() {
+        return loadLockLeaseMillis;
+    }
+
+    public void setLoadLockLeaseMillis(long loadLockLeaseMillis) {
+        this.loadLockLeaseMillis = loadLockLeaseMillis;
+    }
+
+    public int getClearBatchSize() {
+        return clearBatchSize;
+    }
+
+    public void setClearBatchSize(int clearBatchSize) {
+        this.clearBatchSize = clearBatchSize;
+    }
+
+    public long getClearBatchPauseMillis() {
+        return clearBatchPauseMillis;
+    }
+
+    public void setClearBatchPauseMillis(long clearBatchPauseMillis) {
+        this.clearBatchPauseMillis = clearBatchPauseMillis;
+    }
+
+    public long getClearProgressLogInterval() {
+        return clearProgressLogInterval;
+    }
+
+    public void setClearProgressLogInterval(long clearProgressLogInterval) {
+        this.clearProgressLogInterval = clearProgressLogInterval;
+    }
+
+    public boolean isClearInBackground() {
+        return clearInBackground;
+    }
+
+    public void setClearInBackground(boolean clearInBackground) {
+        this.clearInBackground = clearInBackground;
+    }
+
+    public double getEarlyRefreshBeta() {
+        return earlyRefreshBeta;
+    }
+
+    public void setEarlyRefreshBeta(double earlyRefreshBeta) {
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    public double getRefreshAheadFactor() {
+        return refreshAheadFactor;
+    }
+
+    public void setRefreshAheadFactor(double refreshAheadFactor) {
+        this.refreshAheadFactor = refreshAheadFactor;
+    }
+
+    public long getStaleGraceSeconds() {
+        return staleGraceSeconds;
+    }
+
+    public void setStaleGraceSeconds(long staleGraceSeconds) {
+        this.staleGraceSeconds = staleGraceSeconds;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public String getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(String serializer) {
+        this.serializer = serializer;
+    }
+
+    public Long getExpiration() {
+        return expiration;
+    }
+
+    public void setExpiration(Long expiration) {
+        this.expiration = expiration;
+    }
+
+    public Double getExpirationJitter() {
+        return expirationJitter;
+    }
+
+    public void setExpirationJitter(Double expirationJitter) {
+        this.expirationJitter = expirationJitter;
+    }
+
+    public boolean isSlidingExpiration() {
+        return slidingExpiration;
+    }
+
+    public void setSlidingExpiration(boolean slidingExpiration) {
+        this.slidingExpiration = slidingExpiration;
+    }
+
+    public long getSlidingFlushMillis() {
+        return slidingFlushMillis;
+    }
+
+    public void setSlidingFlushMillis(long slidingFlushMillis) {
+        this.slidingFlushMillis = slidingFlushMillis;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public long getWriteBehindFlushMillis() {
+        return writeBehindFlushMillis;
+    }
+
+    public void setWriteBehindFlushMillis(long writeBehindFlushMillis) {
+        this.writeBehindFlushMillis = writeBehindFlushMillis;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+    public int getWriteBehindMaxPending() {
+        return writeBehindMaxPending;
+    }
+
+    public void setWriteBehindMaxPending(int writeBehindMaxPending) {
+        this.writeBehindMaxPending = writeBehindMaxPending;
+    }
+
+    /**
+     * 是否需要在缓存值中保存写入时间等附加信息
+     *
+     * @return
+     */
+    public boolean isEntryHeaderRequired() {
+        return earlyRefreshBeta > 0 || refreshAheadFactor > 0 || staleGraceSeconds > 0;
+    }
+}
@@ -5,6 +5,12 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author carroll on 2017/5/19.
  * Cache工具类
@@ -13,6 +19,8 @@ import org.springframework.stereotype.Component;
 public class CacheUtil {
     @Autowired
     private CacheManager cacheManager;
+    @Autowired(required = false)
+    private CacheAsyncExecutor cacheAsyncExecutor;
 
     private static final String SYS_CACHE = "sysCache";
 
@@ -43,6 +51,31 @@ public class CacheUtil {
         evict(SYS_CACHE, key);
     }
 
+    /**
+     * 批量获取SYS_CACHE缓存
+     * @param keys
+     * @return 命中的key和值
+     */
+    public Map<String, Object> getAll(Collection<String> keys) {
+        return getAll(SYS_CACHE, keys);
+    }
+
+    /**
+     * 批量写入SYS_CACHE缓存
+     * @param values
+     */
+    public void putAll(Map<String, ?> values) {
+        putAll(SYS_CACHE, values);
+    }
+
+    /**
+     * 从SYS_CACHE缓存中批量移除
+     * @param keys
+     */
+    public void evictAll(Collection<String> keys) {
+        evictAll(SYS_CACHE, keys);
+    }
+
     /**
      * 获取缓存
      * @param cacheName
@@ -72,6 +105,161 @@ public class CacheUtil {
         getCache(cacheName).evict(key);
     }
 
+    /**
+     * 批量获取缓存
+     * @param cacheName
+     * @param keys
+     * @return 命中的key和值，按传入顺序
+     */
+    public Map<String, Object> getAll(String cacheName, Collection<String> keys) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).getAll(keys);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            Cache.ValueWrapper value = cache.get(key);
+            if (value != null) {
+                result.put(key, value.get());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入缓存
+     * @param cacheName
+     * @param values
+     */
+    public void putAll(String cacheName, Map<String, ?> values) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            ((CustomRedisCache) cache).putAll(values);
+            return;
+        }
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            cache.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 从缓存中批量移除
+     * @param cacheName
+     * @param keys
+     */
+    public void evictAll(String cacheName, Collection<String> keys) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            ((CustomRedisCache) cache).evictAll(keys);
+            return;
+        }
+        for (String key : keys) {
+            cache.evict(key);
+        }
+    }
+
+    /**
+     * 异步获取缓存，在缓存的I/O线程中执行
+     * @param cacheName
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Object> getAsync(String cacheName, String key) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).getAsync(key).thenApply(value -> value != null ? value.get() : null);
+        }
+        return submit(() -> get(cacheName, key));
+    }
+
+    /**
+     * 异步获取缓存，未命中时调用valueLoader加载并写入
+     * @param cacheName
+     * @param key
+     * @param valueLoader
+     * @return
+     */
+    public <T> CompletableFuture<T> getAsync(String cacheName, String key, Callable<T> valueLoader) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).getAsync(key, valueLoader);
+        }
+        return submit(() -> cache.get(key, valueLoader));
+    }
+
+    /**
+     * 异步写入缓存
+     * @param cacheName
+     * @param key
+     * @param value
+     * @return
+     */
+    public CompletableFuture<Void> putAsync(String cacheName, String key, Object value) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).putAsync(key, value);
+        }
+        return submit(() -> {
+            cache.put(key, value);
+            return null;
+        });
+    }
+
+    /**
+     * 异步从缓存中移除
+     * @param cacheName
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Void> evictAsync(String cacheName, String key) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).evictAsync(key);
+        }
+        return submit(() -> {
+            cache.evict(key);
+            return null;
+        });
+    }
+
+    /**
+     * 异步批量获取缓存
+     * @param cacheName
+     * @param keys
+     * @return 命中的key和值，按传入顺序
+     */
+    public CompletableFuture<Map<String, Object>> getAllAsync(String cacheName, Collection<String> keys) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).getAllAsync(keys);
+        }
+        return submit(() -> getAll(cacheName, keys));
+    }
+
+    /**
+     * 异步批量写入缓存
+     * @param cacheName
+     * @param values
+     * @return
+     */
+    public CompletableFuture<Void> putAllAsync(String cacheName, Map<String, ?> values) {
+        Cache cache = getCache(cacheName);
+        if (cache instanceof CustomRedisCache) {
+            return ((CustomRedisCache) cache).putAllAsync(values);
+        }
+        return submit(() -> {
+            putAll(cacheName, values);
+            return null;
+        });
+    }
+
+    /**
+     * 不是CustomRedisCache的缓存使用cacheAsyncExecutor执行，没有配置时在当前线程执行
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        return cacheAsyncExecutor != null ? cacheAsyncExecutor.submit(task) : CacheAsyncExecutor.callNow(task);
+    }
+
     /**
      * 获得一个Cache，没有则创建一个。
      * @param cacheName
@@ -0,0 +1,85 @@
+package com.kyle.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个缓存的压缩统计
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class CompressionStats {
+    //压缩的值个数
+    private final LongAdder compressedCount = new LongAdder();
+    //超过阈值但压缩后没有变小、按原样保存的值个数
+    private final LongAdder skippedCount = new LongAdder();
+    //压缩前的字节数
+    private final LongAdder originalBytes = new LongAdder();
+    //压缩后的字节数
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressedCount = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    void recordCompress(int originalLength, int compressedLength, long nanos) {
+        compressNanos.add(nanos);
+        if (compressedLength >= originalLength) {
+            skippedCount.increment();
+            return;
+        }
+        compressedCount.increment();
+        originalBytes.add(originalLength);
+        compressedBytes.add(compressedLength);
+    }
+
+    void recordDecompress(long nanos) {
+        decompressedCount.increment();
+        decompressNanos.add(nanos);
+    }
+
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * 压缩率：压缩后字节数/压缩前字节数，没有压缩过时为1
+     *
+     * @return
+     */
+    public double getCompressionRatio() {
+        long original = originalBytes.sum();
+        return original == 0 ? 1D : (double) compressedBytes.sum() / original;
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    public long getDecompressedCount() {
+        return decompressedCount.sum();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("compressed=%d, skipped=%d, ratio=%.3f, compressMillis=%d, decompressed=%d, decompressMillis=%d",
+                getCompressedCount(), getSkippedCount(), getCompressionRatio(), getCompressNanos() / 1000000,
+                getDecompressedCount(), getDecompressNanos() / 1000000);
+    }
+}
@@ -1,5 +1,7 @@
 package com.kyle.cache;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cache.support.AbstractValueAdaptingCache;
 import org.springframework.cache.support.NullValue;
 import org.springframework.cache.support.SimpleValueWrapper;
@@ -8,17 +10,60 @@ import org.springframework.data.redis.RedisSystemException;
 import org.springframework.data.redis.cache.RedisCacheElement;
 import org.springframework.data.redis.cache.RedisCacheKey;
 import org.springframework.data.redis.connection.*;
+import org.springframework.data.redis.connection.util.ByteArrayWrapper;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
-import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.*;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  * @author: carroll
@@ -26,32 +71,140 @@ import java.util.concurrent.Callable;
  * Copyright @https://github.com/carroll0911. 
  */
 public class CustomRedisCache extends AbstractValueAdaptingCache {
+    private static Logger log = LoggerFactory.getLogger(CustomRedisCache.class);
+
+    // 后台清空缓存使用的线程，同一时间只执行一个清空任务
+    private static final ExecutorService CLEAR_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "cache-clear");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // 提前刷新使用的线程池，队列满时放弃刷新
+    private static final ExecutorService REFRESH_EXECUTOR = newRefreshExecutor();
+
+    // 滑动过期批量延长过期时间使用的线程
+    private static final ScheduledExecutorService TOUCH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "cache-touch");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
-    private final RedisOperations redisOperations;
+    // 写后回写批量写入Redis使用的线程
+    private static final ScheduledExecutorService WRITE_BEHIND_EXECUTOR = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "cache-write-behind-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // 单个缓存等待延长过期时间的key数上限，超过时放弃记录，下次命中会重新记录
+    private static final int MAX_PENDING_TOUCHES = 100000;
+
+    private final RedisOperations<?, ?> redisOperations;
     private final CustomRedisCache.RedisCacheMetadata cacheMetadata;
     private final CustomRedisCache.CacheValueAccessor cacheValueAccessor;
+    private final NearCache nearCache;
+    private final NearCacheInvalidator nearCacheInvalidator;
+    private final CacheSettings settings;
+    private final Set<ByteArrayWrapper> refreshing = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<ByteArrayWrapper, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<ByteArrayWrapper, CompletableFuture<Object>>();
+    private final boolean slidingExpiration;
+    private final Set<ByteArrayWrapper> pendingTouches = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean touchScheduled = new AtomicBoolean();
+    private final CustomRedisCache.WriteBehindBuffer writeBehind;
+    private volatile CacheAsyncExecutor asyncExecutor;
 
     public CustomRedisCache(String name, byte[] prefix, RedisOperations<? extends Object, ? extends Object> redisOperations, long expiration) {
         this(name, prefix, redisOperations, expiration, false);
     }
 
     public CustomRedisCache(String name, byte[] prefix, RedisOperations<? extends Object, ? extends Object> redisOperations, long expiration, boolean allowNullValues) {
+        this(name, prefix, redisOperations, expiration, allowNullValues, null, null, null);
+    }
+
+    /**
+     * @param settings             缓存的单独配置，为null时使用默认配置
+     * @param nearCache            本地一级缓存，为null时不开启
+     * @param nearCacheInvalidator 用于通知其他节点本地缓存失效，为null时只维护本节点
+     */
+    public CustomRedisCache(String name, byte[] prefix, RedisOperations<? extends Object, ? extends Object> redisOperations, long expiration, boolean allowNullValues,
+                            CacheSettings settings, NearCache nearCache, NearCacheInvalidator nearCacheInvalidator) {
+        this(name, prefix, redisOperations, expiration, allowNullValues, settings, nearCache, nearCacheInvalidator, null);
+    }
+
+    /**
+     * @param valueSerializer 值的序列化方式，为null时使用redisOperations的valueSerializer
+     */
+    public CustomRedisCache(String name, byte[] prefix, RedisOperations<? extends Object, ? extends Object> redisOperations, long expiration, boolean allowNullValues,
+                            CacheSettings settings, NearCache nearCache, NearCacheInvalidator nearCacheInvalidator, RedisSerializer<?> valueSerializer) {
+        this(name, prefix, redisOperations, new ExpirationPolicy(expiration), allowNullValues, settings, nearCache, nearCacheInvalidator, valueSerializer);
+    }
+
+    /**
+     * @param expirationPolicy 过期策略，每次写入按策略计算过期时间
+     */
+    public CustomRedisCache(String name, byte[] prefix, RedisOperations<? extends Object, ? extends Object> redisOperations, ExpirationPolicy expirationPolicy, boolean allowNullValues,
+                            CacheSettings settings, NearCache nearCache, NearCacheInvalidator nearCacheInvalidator, RedisSerializer<?> valueSerializer) {
         super(allowNullValues);
+        Assert.notNull(expirationPolicy, "ExpirationPolicy must not be null!");
         Assert.hasText(name, "CacheName must not be null or empty!");
-        RedisSerializer<?> serializer = redisOperations.getValueSerializer() != null ? redisOperations.getValueSerializer() : new JdkSerializationRedisSerializer();
+        RedisSerializer<?> serializer = valueSerializer != null ? valueSerializer
+                : redisOperations.getValueSerializer() != null ? redisOperations.getValueSerializer() : new JdkSerializationRedisSerializer();
+        CacheSettings cacheSettings = settings != null ? settings : new CacheSettings();
         this.cacheMetadata = new CustomRedisCache.RedisCacheMetadata(name, prefix);
-        this.cacheMetadata.setDefaultExpiration(expiration);
+        this.cacheMetadata.setExpirationPolicy(expirationPolicy);
+        this.cacheMetadata.setLoadLockLeaseMillis(cacheSettings.getLoadLockLeaseMillis());
         this.redisOperations = redisOperations;
-        this.cacheValueAccessor = new CustomRedisCache.CacheValueAccessor((RedisSerializer) serializer);
-        if (allowNullValues && (redisOperations.getValueSerializer() instanceof StringRedisSerializer || redisOperations.getValueSerializer() instanceof GenericToStringSerializer || redisOperations.getValueSerializer() instanceof JacksonJsonRedisSerializer || redisOperations.getValueSerializer() instanceof Jackson2JsonRedisSerializer)) {
-            throw new IllegalArgumentException(String.format("Redis does not allow keys with null value ¯\\_(ツ)_/¯. The chosen %s does not support generic type handling and therefore cannot be used with allowNullValues enabled. Please use a different RedisSerializer or disable null value support.", ClassUtils.getShortName(redisOperations.getValueSerializer().getClass())));
+        this.cacheValueAccessor = new CustomRedisCache.CacheValueAccessor((RedisSerializer) serializer, cacheSettings.isEntryHeaderRequired(),
+                Math.max(cacheSettings.getStaleGraceSeconds(), 0L), Math.max(cacheSettings.getCompressThreshold(), 0));
+        this.nearCache = nearCache;
+        this.nearCacheInvalidator = nearCacheInvalidator;
+        this.settings = cacheSettings;
+        this.slidingExpiration = cacheSettings.isSlidingExpiration() && !expirationPolicy.isEternal();
+        this.writeBehind = cacheSettings.isWriteBehind() ? new CustomRedisCache.WriteBehindBuffer() : null;
+        if (allowNullValues && (serializer instanceof StringRedisSerializer || serializer instanceof GenericToStringSerializer || serializer instanceof JacksonJsonRedisSerializer || serializer instanceof Jackson2JsonRedisSerializer)) {
+            throw new IllegalArgumentException(String.format("Redis does not allow keys with null value ¯\\_(ツ)_/¯. The chosen %s does not support generic type handling and therefore cannot be used with allowNullValues enabled. Please use a different RedisSerializer or disable null value support.", ClassUtils.getShortName(serializer.getClass())));
         }
     }
 
+    private static ExecutorService newRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1024), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "cache-refresh-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 按给出的类型直接反序列化，序列化方式支持时省去按Object读取后的转换
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T get(Object key, Class<T> type) {
-        ValueWrapper wrapper = this.get(key);
-        return wrapper == null ? null : (T) wrapper.get();
+        RedisCacheElement element = this.getElement(this.getRedisCacheKey(key), type);
+        Object value = element == null ? null : element.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
     }
 
     @Override
@@ -60,38 +213,215 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T get(Object key, Callable<T> valueLoader) {
-        RedisCacheElement cacheElement = (new RedisCacheElement(this.getRedisCacheKey(key), new CustomRedisCache.StoreTranslatingCallable(valueLoader))).expireAfter(this.cacheMetadata.getDefaultExpiration());
-        CustomRedisCache.BinaryRedisCacheElement rce = new CustomRedisCache.BinaryRedisCacheElement(cacheElement, this.cacheValueAccessor);
-        ValueWrapper val = this.get(key);
-        if (val != null) {
-            return (T) val.get();
+        RedisCacheKey cacheKey = this.getRedisCacheKey(key);
+        ValueWrapper local = this.getFromNearCache(cacheKey.getKeyBytes());
+        if (local != null) {
+            return (T) this.fromStoreValue(local.get());
+        }
+
+        // 本节点同一个key的并发读取合并为一次，其余线程等待同一个结果
+        ByteArrayWrapper loadKey = new ByteArrayWrapper(cacheKey.getKeyBytes());
+        CompletableFuture<Object> load = new CompletableFuture<Object>();
+        CompletableFuture<Object> inFlight = this.inFlightLoads.putIfAbsent(loadKey, load);
+        if (inFlight != null) {
+            return (T) this.fromStoreValue(this.awaitLoad(inFlight, cacheKey, key, valueLoader));
+        }
+
+        try {
+            Object storeValue = this.load(cacheKey, key, valueLoader);
+            load.complete(storeValue);
+            return (T) this.fromStoreValue(storeValue);
+        } catch (Throwable e) {
+            // Error也要结束Future，否则等待的线程一直阻塞
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlightLoads.remove(loadKey, load);
+        }
+    }
+
+    private Object load(RedisCacheKey cacheKey, Object key, Callable<?> valueLoader) {
+        long nearCacheVersion = this.nearCache != null ? this.nearCache.currentVersion() : 0L;
+        CustomRedisCache.StoredValue stored = this.lookupEntry(cacheKey);
+        Object storeValue = stored != null ? stored.getValue() : null;
+        if (storeValue != null && stored.isExpired(System.currentTimeMillis())) {
+            if (this.cacheValueAccessor.getStaleGraceSeconds() > 0L) {
+                // 宽限时间内直接返回旧值，后台刷新；刷新失败时继续使用旧值直到redis中的key过期
+                this.cacheMetadata.getMetrics().recordHit();
+                this.refreshAsync(cacheKey, valueLoader);
+                return storeValue;
+            }
+            storeValue = null;
+        } else if (storeValue != null && this.shouldRefreshEarly(stored)) {
+            this.refreshAsync(cacheKey, valueLoader);
+        }
+        if (storeValue != null) {
+            this.cacheMetadata.getMetrics().recordHit();
         } else {
+            this.cacheMetadata.getMetrics().recordMiss();
+            RedisCacheElement cacheElement = (new RedisCacheElement(cacheKey, new CustomRedisCache.StoreTranslatingCallable(valueLoader))).expireAfter(this.cacheMetadata.nextTimeToLive());
+            CustomRedisCache.BinaryRedisCacheElement rce = new CustomRedisCache.BinaryRedisCacheElement(cacheElement, this.cacheValueAccessor);
             CustomRedisCache.RedisWriteThroughCallback callback = new CustomRedisCache.RedisWriteThroughCallback(rce, this.cacheMetadata);
 
             try {
-                byte[] result = (byte[]) ((byte[]) this.redisOperations.execute(callback));
-                return result == null ? null : (T) this.fromStoreValue(this.cacheValueAccessor.deserializeIfNecessary(result));
+                byte[] result = this.redisOperations.execute(callback);
+                this.discardStaleGeneration(Collections.singletonList(cacheKey.getKeyBytes()));
+                if (result == null) {
+                    return null;
+                }
+                storeValue = this.cacheValueAccessor.deserializeIfNecessary(result);
             } catch (RuntimeException var8) {
                 throw CustomRedisCache.CacheValueRetrievalExceptionFactory.INSTANCE.create(key, valueLoader, var8);
             }
         }
+        if (this.nearCache != null && storeValue != null) {
+            this.nearCache.putIfValid(cacheKey.getKeyBytes(), storeValue, nearCacheVersion);
+        }
+        return storeValue;
+    }
+
+    /**
+     * 是否提前刷新：XFetch按上次加载耗时和剩余时间概率性触发，越接近过期、加载越慢越容易触发；
+     * refresh-ahead在存活时间超过一定比例后触发
+     */
+    private boolean shouldRefreshEarly(CustomRedisCache.StoredValue stored) {
+        if (stored.getExpireAt() <= 0L) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        double beta = this.settings.getEarlyRefreshBeta();
+        if (beta > 0D && now - Math.max(stored.getLoadMillis(), 1) * beta * Math.log(1D - ThreadLocalRandom.current().nextDouble()) >= stored.getExpireAt()) {
+            return true;
+        }
+        double factor = this.settings.getRefreshAheadFactor();
+        return factor > 0D && now >= stored.getWrittenAt() + (long) ((stored.getExpireAt() - stored.getWrittenAt()) * factor);
+    }
+
+    /**
+     * 在后台刷新，调用方继续使用当前值；同一个key同时只有一个刷新任务
+     */
+    private void refreshAsync(final RedisCacheKey cacheKey, final Callable<?> valueLoader) {
+        final ByteArrayWrapper refreshKey = new ByteArrayWrapper(cacheKey.getKeyBytes());
+        if (!this.refreshing.add(refreshKey)) {
+            return;
+        }
+        try {
+            REFRESH_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        CustomRedisCache.this.refresh(cacheKey, valueLoader);
+                    } catch (RuntimeException e) {
+                        log.warn(String.format("refresh cache [%s] failed", CustomRedisCache.this.getName()), e);
+                    } finally {
+                        CustomRedisCache.this.refreshing.remove(refreshKey);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 刷新任务过多时放弃，到期后按正常流程加载
+            this.refreshing.remove(refreshKey);
+        }
+    }
+
+    private void refresh(RedisCacheKey cacheKey, Callable<?> valueLoader) {
+        this.cacheMetadata.getMetrics().recordRefresh();
+        RedisCacheElement cacheElement = (new RedisCacheElement(cacheKey, new CustomRedisCache.StoreTranslatingCallable(valueLoader))).expireAfter(this.cacheMetadata.nextTimeToLive());
+        CustomRedisCache.BinaryRedisCacheElement rce = new CustomRedisCache.BinaryRedisCacheElement(cacheElement, this.cacheValueAccessor);
+        Boolean refreshed = this.redisOperations.execute(new CustomRedisCache.RedisCacheRefreshCallback(rce, this.cacheMetadata));
+        if (Boolean.TRUE.equals(refreshed)) {
+            this.discardStaleGeneration(Collections.singletonList(cacheKey.getKeyBytes()));
+        }
+        if (Boolean.TRUE.equals(refreshed) && this.nearCache != null) {
+            this.nearCache.evict(cacheKey.getKeyBytes());
+            this.publishEvict(cacheKey.getKeyBytes());
+        }
+    }
+
+    /**
+     * 等待其他线程的读取，最多等待加载锁的有效期，超时后自行读取
+     */
+    private Object awaitLoad(CompletableFuture<Object> inFlight, RedisCacheKey cacheKey, Object key, Callable<?> valueLoader) {
+        try {
+            Object storeValue = inFlight.get(this.cacheMetadata.getLoadLockLeaseMillis(), TimeUnit.MILLISECONDS);
+            // 合并到其他线程的读取，不单独访问redis，命中或未命中已由那次读取统计
+            this.cacheMetadata.getMetrics().recordCoalesced();
+            return storeValue;
+        } catch (TimeoutException e) {
+            // 超过有效期后其他节点也不再等待加载锁，这里同样不再等待
+            return this.load(cacheKey, key, valueLoader);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw CustomRedisCache.CacheValueRetrievalExceptionFactory.INSTANCE.create(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : CustomRedisCache.CacheValueRetrievalExceptionFactory.INSTANCE.create(key, valueLoader, e.getCause());
+        }
     }
 
     public RedisCacheElement get(final RedisCacheKey cacheKey) {
+        return this.getElement(cacheKey, null);
+    }
+
+    /**
+     * @param type 反序列化的目标类型，为null时按Object读取
+     */
+    private RedisCacheElement getElement(RedisCacheKey cacheKey, Class<?> type) {
         Assert.notNull(cacheKey, "CacheKey must not be null!");
-        Boolean exists = (Boolean) this.redisOperations.execute(new RedisCallback<Boolean>() {
-            @Override
-            public Boolean doInRedis(RedisConnection connection) throws DataAccessException {
-                return connection.exists(cacheKey.getKeyBytes());
-            }
-        });
-        return !exists ? null : new RedisCacheElement(cacheKey, this.fromStoreValue(this.lookup(cacheKey)));
+        if (this.nearCache != null) {
+            return this.getThroughNearCache(cacheKey, type);
+        }
+        // 只发一次GET，空值不会写入redis，返回null即未命中
+        Object storeValue = this.lookup(cacheKey, type);
+        this.recordLookup(storeValue);
+        return storeValue == null ? null : new RedisCacheElement(cacheKey, this.fromStoreValue(storeValue));
+    }
+
+    private RedisCacheElement getThroughNearCache(RedisCacheKey cacheKey, Class<?> type) {
+        byte[] keyBytes = cacheKey.getKeyBytes();
+        ValueWrapper local = this.getFromNearCache(keyBytes);
+        if (local != null) {
+            return new RedisCacheElement(cacheKey, this.fromStoreValue(local.get()));
+        }
+        long version = this.nearCache.currentVersion();
+        Object storeValue = this.lookup(cacheKey, type);
+        this.recordLookup(storeValue);
+        if (storeValue == null) {
+            return null;
+        }
+        this.nearCache.putIfValid(keyBytes, storeValue, version);
+        return new RedisCacheElement(cacheKey, this.fromStoreValue(storeValue));
+    }
+
+    /**
+     * 读取本地缓存，命中时记录统计并延长过期时间
+     *
+     * @return 本地缓存中的存储值，未开启或未命中时返回null
+     */
+    private ValueWrapper getFromNearCache(byte[] keyBytes) {
+        if (this.nearCache == null) {
+            return null;
+        }
+        ValueWrapper local = this.nearCache.get(keyBytes);
+        if (local != null) {
+            this.cacheMetadata.getMetrics().recordNearCacheHit();
+            this.touch(keyBytes);
+        }
+        return local;
+    }
+
+    private void recordLookup(Object storeValue) {
+        if (storeValue != null) {
+            this.cacheMetadata.getMetrics().recordHit();
+        } else {
+            this.cacheMetadata.getMetrics().recordMiss();
+        }
     }
 
     @Override
     public void put(Object key, Object value) {
-        this.put((new RedisCacheElement(this.getRedisCacheKey(key), this.toStoreValue(value))).expireAfter(this.cacheMetadata.getDefaultExpiration()));
+        this.put((new RedisCacheElement(this.getRedisCacheKey(key), this.toStoreValue(value))).expireAfter(this.cacheMetadata.nextTimeToLive()));
     }
 
     @Override
@@ -101,18 +431,49 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
 
     public void put(RedisCacheElement element) {
         Assert.notNull(element, "Element must not be null!");
-        this.redisOperations.execute(new CustomRedisCache.RedisCachePutCallback(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor), this.cacheMetadata));
+        CustomRedisCache.BinaryRedisCacheElement binaryElement = new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor);
+        if (this.writeBehind != null) {
+            this.writeBehind(binaryElement);
+        } else {
+            this.executeWrite(new CustomRedisCache.RedisCachePutCallback(binaryElement, this.cacheMetadata));
+            this.discardStaleGeneration(Collections.singletonList(element.getKeyBytes()));
+        }
+        this.cacheMetadata.getMetrics().recordPuts(1);
+        if (this.nearCache != null) {
+            this.nearCache.evict(element.getKeyBytes());
+            if (element.get() != null) {
+                this.nearCache.put(element.getKeyBytes(), element.get());
+            }
+            if (this.writeBehind == null) {
+                // 回写模式在写入Redis之后再通知其他节点，避免其他节点从Redis读到旧值
+                this.publishEvict(element.getKeyBytes());
+            }
+        }
     }
 
     @Override
     public ValueWrapper putIfAbsent(Object key, Object value) {
-        return this.putIfAbsent((new RedisCacheElement(this.getRedisCacheKey(key), this.toStoreValue(value))).expireAfter(this.cacheMetadata.getDefaultExpiration()));
+        return this.putIfAbsent((new RedisCacheElement(this.getRedisCacheKey(key), this.toStoreValue(value))).expireAfter(this.cacheMetadata.nextTimeToLive()));
     }
 
     public ValueWrapper putIfAbsent(RedisCacheElement element) {
         Assert.notNull(element, "Element must not be null!");
-        new CustomRedisCache.RedisCachePutIfAbsentCallback(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor), this.cacheMetadata);
-        return this.toWrapper(this.cacheValueAccessor.deserializeIfNecessary((byte[]) ((byte[]) this.redisOperations.execute(new CustomRedisCache.RedisCachePutIfAbsentCallback(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor), this.cacheMetadata)))));
+        if (this.writeBehind != null) {
+            CustomRedisCache.BinaryRedisCacheElement pending = this.writeBehind.get(element.getKeyBytes());
+            if (pending != null && pending.getStoreValue() != null) {
+                return this.toWrapper(pending.getStoreValue());
+            }
+        }
+        byte[] existing = (byte[]) this.executeWrite(new CustomRedisCache.RedisCachePutIfAbsentCallback(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor), this.cacheMetadata));
+        if (existing == null) {
+            this.discardStaleGeneration(Collections.singletonList(element.getKeyBytes()));
+            this.cacheMetadata.getMetrics().recordPuts(1);
+        }
+        if (existing == null && this.nearCache != null) {
+            this.nearCache.evict(element.getKeyBytes());
+            this.publishEvict(element.getKeyBytes());
+        }
+        return existing != null ? this.toWrapper(this.cacheValueAccessor.deserializeIfNecessary(existing)) : null;
     }
 
     @Override
@@ -122,12 +483,549 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
 
     public void evict(RedisCacheElement element) {
         Assert.notNull(element, "Element must not be null!");
-        this.redisOperations.execute(new CustomRedisCache.RedisCacheEvictCallback(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor), this.cacheMetadata));
+        if (this.writeBehind != null) {
+            this.writeBehind.discard(Collections.singletonList(element.getKeyBytes()));
+        }
+        this.executeWrite(new CustomRedisCache.RedisCacheEvictCallback(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor), this.cacheMetadata));
+        this.cacheMetadata.getMetrics().recordEvictions(1);
+        if (this.nearCache != null) {
+            this.nearCache.evict(element.getKeyBytes());
+            this.publishEvict(element.getKeyBytes());
+        }
     }
 
     @Override
     public void clear() {
-        this.redisOperations.execute((RedisCallback) (this.cacheMetadata.usesKeyPrefix() ? new CustomRedisCache.RedisCacheCleanByPrefixCallback(this.cacheMetadata) : new CustomRedisCache.RedisCacheCleanByKeysCallback(this.cacheMetadata)));
+        this.cacheMetadata.getMetrics().recordClear();
+        if (this.writeBehind != null) {
+            this.writeBehind.discardAll();
+        }
+        if (this.cacheMetadata.isGenerational()) {
+            this.clearGeneration();
+            return;
+        }
+        if (!this.settings.isClearInBackground()) {
+            this.doClear();
+            return;
+        }
+
+        // 先清空本地缓存，Redis中的key在后台删除，删除完成后再清空一次本地缓存
+        this.clearNearCache();
+        CLEAR_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    CustomRedisCache.this.doClear();
+                } catch (RuntimeException e) {
+                    log.error(String.format("clear cache [%s] failed", CustomRedisCache.this.getName()), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 版本号加一即完成清空，旧版本的key随过期时间淘汰；不过期的缓存在后台删除旧版本的key。
+     * 本地缓存的版本号可能已落后，从本地版本号到新版本号之前的每个版本都要删除
+     */
+    private void clearGeneration() {
+        final long fromGeneration = this.cacheMetadata.getGeneration();
+        final long generation = this.cacheMetadata.nextGeneration();
+        this.clearNearCache();
+        if (!this.cacheMetadata.getExpirationPolicy().isEternal()) {
+            return;
+        }
+        CLEAR_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (long old = Math.min(fromGeneration, generation - 1L); old < generation; old++) {
+                    try {
+                        CustomRedisCache.this.redisOperations.execute(new CustomRedisCache.RedisCacheCleanByPrefixCallback(CustomRedisCache.this.cacheMetadata, CustomRedisCache.this.settings, CustomRedisCache.this.cacheMetadata.getKeyPrefix(old)));
+                    } catch (RuntimeException e) {
+                        log.error(String.format("remove generation %d of cache [%s] failed", old, CustomRedisCache.this.getName()), e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 不过期的缓存写入后确认版本号：其他节点清空后，本节点在刷新版本号之前仍按旧版本写入，这些key不会过期也不会再被访问。
+     * 写入后版本号已变化时删除刚写入的key；确认之后才变化的，由清空的节点在后台删除旧版本时一并删除
+     */
+    private void discardStaleGeneration(List<byte[]> keys) {
+        if (!this.cacheMetadata.isGenerational() || !this.cacheMetadata.getExpirationPolicy().isEternal()) {
+            return;
+        }
+        byte[] prefix = this.cacheMetadata.getCurrentKeyPrefix();
+        List<byte[]> stale = new ArrayList<byte[]>();
+        for (byte[] key : keys) {
+            if (!CustomRedisCache.hasPrefix(key, prefix)) {
+                stale.add(key);
+            }
+        }
+        if (!stale.isEmpty()) {
+            this.redisOperations.execute(new CustomRedisCache.RedisCacheMultiEvictCallback(stale, this.cacheMetadata));
+        }
+    }
+
+    private static boolean hasPrefix(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<byte[]> keysOf(List<CustomRedisCache.BinaryRedisCacheElement> elements) {
+        List<byte[]> keys = new ArrayList<byte[]>(elements.size());
+        for (CustomRedisCache.BinaryRedisCacheElement element : elements) {
+            keys.add(element.getKeyBytes());
+        }
+        return keys;
+    }
+
+    private void doClear() {
+        this.redisOperations.execute(this.cacheMetadata.usesKeyPrefix() ? new CustomRedisCache.RedisCacheCleanByPrefixCallback(this.cacheMetadata, this.settings) : new CustomRedisCache.RedisCacheCleanByKeysCallback(this.cacheMetadata, this.settings));
+        this.clearNearCache();
+    }
+
+    private void clearNearCache() {
+        if (this.nearCache != null) {
+            this.nearCache.clear();
+            if (this.nearCacheInvalidator != null) {
+                this.nearCacheInvalidator.publishClear(this.getName());
+            }
+        }
+    }
+
+    private void publishEvict(byte[] keyBytes) {
+        if (this.nearCacheInvalidator != null) {
+            this.nearCacheInvalidator.publishEvict(this.getName(), keyBytes);
+        }
+    }
+
+    /**
+     * 批量读取，单机一条MGET，集群按节点并行pipeline
+     *
+     * @param keys
+     * @return 命中的key和值，按传入顺序
+     */
+    public <K> Map<K, Object> getAll(Collection<K> keys) {
+        Assert.notNull(keys, "Keys must not be null!");
+        Map<K, Object> found = new HashMap<K, Object>();
+        Map<K, byte[]> remoteKeys = new LinkedHashMap<K, byte[]>();
+        CacheMetrics metrics = this.cacheMetadata.getMetrics();
+        for (K key : keys) {
+            byte[] keyBytes = this.getRedisCacheKey(key).getKeyBytes();
+            ValueWrapper local = this.nearCache != null ? this.nearCache.get(keyBytes) : null;
+            CustomRedisCache.BinaryRedisCacheElement pending = this.writeBehind != null && local == null ? this.writeBehind.get(keyBytes) : null;
+            if (local != null) {
+                metrics.recordNearCacheHit();
+                this.touch(keyBytes);
+                found.put(key, local.get());
+            } else if (pending != null && pending.getStoreValue() != null) {
+                metrics.recordHit();
+                found.put(key, pending.getStoreValue());
+            } else {
+                remoteKeys.put(key, keyBytes);
+            }
+        }
+
+        if (!remoteKeys.isEmpty()) {
+            long nearCacheVersion = this.nearCache != null ? this.nearCache.currentVersion() : 0L;
+            long start = System.nanoTime();
+            List<byte[]> values = this.redisOperations.execute(new CustomRedisCache.RedisCacheMultiGetCallback(new ArrayList<byte[]>(remoteKeys.values())));
+            metrics.recordRedisRead(System.nanoTime() - start);
+            int hits = 0;
+            long now = System.currentTimeMillis();
+            int index = 0;
+            for (Map.Entry<K, byte[]> entry : remoteKeys.entrySet()) {
+                byte[] bytes = values.get(index++);
+                if (bytes == null) {
+                    continue;
+                }
+                CustomRedisCache.StoredValue stored = this.cacheValueAccessor.read(bytes);
+                Object storeValue = stored.getValue();
+                if (storeValue == null || stored.isExpired(now)) {
+                    continue;
+                }
+                this.touch(entry.getValue());
+                if (this.nearCache != null) {
+                    this.nearCache.putIfValid(entry.getValue(), storeValue, nearCacheVersion);
+                }
+                found.put(entry.getKey(), storeValue);
+                hits++;
+            }
+            metrics.recordHits(hits);
+            metrics.recordMisses(remoteKeys.size() - hits);
+        }
+
+        Map<K, Object> result = new LinkedHashMap<K, Object>();
+        for (K key : keys) {
+            if (found.containsKey(key)) {
+                result.put(key, this.fromStoreValue(found.get(key)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入，每个key使用缓存的过期时间，单机一次pipeline，集群按节点并行pipeline
+     *
+     * @param values
+     */
+    public void putAll(Map<?, ?> values) {
+        Assert.notNull(values, "Values must not be null!");
+        if (values.isEmpty()) {
+            return;
+        }
+        List<CustomRedisCache.BinaryRedisCacheElement> elements = new ArrayList<CustomRedisCache.BinaryRedisCacheElement>(values.size());
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            RedisCacheElement element = (new RedisCacheElement(this.getRedisCacheKey(entry.getKey()), this.toStoreValue(entry.getValue()))).expireAfter(this.cacheMetadata.nextTimeToLive());
+            elements.add(new CustomRedisCache.BinaryRedisCacheElement(element, this.cacheValueAccessor));
+        }
+        if (this.writeBehind != null) {
+            for (CustomRedisCache.BinaryRedisCacheElement element : elements) {
+                this.writeBehind(element);
+            }
+        } else {
+            this.executeWrite(new CustomRedisCache.RedisCacheMultiPutCallback(elements, this.cacheMetadata));
+            this.discardStaleGeneration(CustomRedisCache.keysOf(elements));
+        }
+        this.cacheMetadata.getMetrics().recordPuts(elements.size());
+        if (this.nearCache != null) {
+            List<byte[]> keys = new ArrayList<byte[]>(elements.size());
+            for (CustomRedisCache.BinaryRedisCacheElement element : elements) {
+                this.nearCache.evict(element.getKeyBytes());
+                keys.add(element.getKeyBytes());
+            }
+            for (CustomRedisCache.BinaryRedisCacheElement element : elements) {
+                this.nearCache.put(element.getKeyBytes(), element.getStoreValue());
+            }
+            if (this.writeBehind == null) {
+                this.publishEvictAll(keys);
+            }
+        }
+    }
+
+    /**
+     * 批量删除
+     *
+     * @param keys
+     */
+    public void evictAll(Collection<?> keys) {
+        Assert.notNull(keys, "Keys must not be null!");
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<byte[]> keyBytes = new ArrayList<byte[]>(keys.size());
+        for (Object key : keys) {
+            keyBytes.add(this.getRedisCacheKey(key).getKeyBytes());
+        }
+        if (this.writeBehind != null) {
+            this.writeBehind.discard(keyBytes);
+        }
+        this.executeWrite(new CustomRedisCache.RedisCacheMultiEvictCallback(keyBytes, this.cacheMetadata));
+        this.cacheMetadata.getMetrics().recordEvictions(keyBytes.size());
+        if (this.nearCache != null) {
+            for (byte[] key : keyBytes) {
+                this.nearCache.evict(key);
+            }
+            this.publishEvictAll(keyBytes);
+        }
+    }
+
+    /**
+     * 执行写操作并记录耗时，写穿时包含等待加载锁的时间
+     */
+    private Object executeWrite(RedisCallback<?> callback) {
+        long start = System.nanoTime();
+        try {
+            return this.redisOperations.execute(callback);
+        } finally {
+            this.cacheMetadata.getMetrics().recordRedisWrite(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 写入回写缓冲区，缓冲区已满时先在当前线程把缓冲区写入Redis，写入失败时异常抛给调用方
+     */
+    private void writeBehind(CustomRedisCache.BinaryRedisCacheElement element) {
+        if (this.writeBehind.size() >= Math.max(this.settings.getWriteBehindMaxPending(), 1)) {
+            this.flushWriteBehind();
+        }
+        this.writeBehind.add(element);
+        this.scheduleWriteBehind(true);
+    }
+
+    /**
+     * @param immediate 缓冲区达到批量大小时是否立即写入，写入失败后重试时只按间隔执行
+     */
+    private void scheduleWriteBehind(boolean immediate) {
+        try {
+            if (immediate && this.writeBehind.size() >= Math.max(this.settings.getWriteBehindBatchSize(), 1)) {
+                if (this.writeBehind.flushRequested.compareAndSet(false, true)) {
+                    WRITE_BEHIND_EXECUTOR.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            CustomRedisCache.this.writeBehind.flushRequested.set(false);
+                            CustomRedisCache.this.flushWriteBehindInBackground();
+                        }
+                    });
+                }
+            } else if (this.writeBehind.timerScheduled.compareAndSet(false, true)) {
+                WRITE_BEHIND_EXECUTOR.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        CustomRedisCache.this.writeBehind.timerScheduled.set(false);
+                        CustomRedisCache.this.flushWriteBehindInBackground();
+                    }
+                }, Math.max(this.settings.getWriteBehindFlushMillis(), 1L), TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            this.writeBehind.flushRequested.set(false);
+            this.writeBehind.timerScheduled.set(false);
+        }
+    }
+
+    private void flushWriteBehindInBackground() {
+        boolean failed = false;
+        try {
+            this.flushWriteBehind();
+        } catch (RuntimeException e) {
+            failed = true;
+            log.warn(String.format("Failed to write %d pending keys of cache '%s'", this.writeBehind.size(), this.getName()), e);
+        }
+        if (!this.writeBehind.isEmpty()) {
+            this.scheduleWriteBehind(!failed);
+        }
+    }
+
+    /**
+     * 把回写缓冲区中的数据按批写入Redis，写入期间新的put继续进入缓冲区；未开启回写时不做任何事
+     * <p>
+     * 关闭时由 {@link ExtendRedisCacheManager} 调用
+     */
+    public void flushWriteBehind() {
+        if (this.writeBehind == null) {
+            return;
+        }
+        int batchSize = Math.max(this.settings.getWriteBehindBatchSize(), 1);
+        this.writeBehind.flushLock.lock();
+        try {
+            // 只处理开始时已有的数据，持续写入时不会一直占用
+            for (int rounds = this.writeBehind.size() / batchSize + 1; rounds > 0; rounds--) {
+                List<CustomRedisCache.BinaryRedisCacheElement> batch = this.writeBehind.peek(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                this.executeWrite(new CustomRedisCache.RedisCacheMultiPutCallback(batch, this.cacheMetadata));
+                this.discardStaleGeneration(CustomRedisCache.keysOf(batch));
+                List<byte[]> keys = this.writeBehind.removeWritten(batch);
+                if (this.nearCache != null) {
+                    this.publishEvictAll(keys);
+                }
+            }
+        } finally {
+            this.writeBehind.flushLock.unlock();
+        }
+    }
+
+    /**
+     * 回写缓冲区中还未写入Redis的key数
+     *
+     * @return
+     */
+    public int getWriteBehindPending() {
+        return this.writeBehind != null ? this.writeBehind.size() : 0;
+    }
+
+    /**
+     * 异步读取，本地缓存命中时直接返回已完成的Future，不占用I/O线程
+     *
+     * @param key
+     * @return 队列已满时以RejectedExecutionException结束，超时时以TimeoutException结束
+     */
+    public CompletableFuture<ValueWrapper> getAsync(final Object key) {
+        ValueWrapper local = this.getFromNearCache(this.getRedisCacheKey(key).getKeyBytes());
+        if (local != null) {
+            return CompletableFuture.completedFuture(this.toValueWrapper(local.get()));
+        }
+        return this.getAsyncExecutor().submit(new Callable<ValueWrapper>() {
+            @Override
+            public ValueWrapper call() {
+                return CustomRedisCache.this.get(key);
+            }
+        });
+    }
+
+    /**
+     * 异步读取并按给出的类型反序列化，本地缓存命中时直接返回已完成的Future
+     *
+     * @see #get(Object, Class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(final Object key, final Class<T> type) {
+        ValueWrapper local = this.getFromNearCache(this.getRedisCacheKey(key).getKeyBytes());
+        if (local != null) {
+            Object value = this.fromStoreValue(local.get());
+            if (value != null && type != null && !type.isInstance(value)) {
+                CompletableFuture<T> failed = new CompletableFuture<T>();
+                failed.completeExceptionally(new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value));
+                return failed;
+            }
+            return CompletableFuture.completedFuture((T) value);
+        }
+        return this.getAsyncExecutor().submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return CustomRedisCache.this.get(key, type);
+            }
+        });
+    }
+
+    /**
+     * 异步读取，未命中时在I/O线程中调用valueLoader加载并写入
+     *
+     * @see #get(Object, Callable)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(final Object key, final Callable<T> valueLoader) {
+        ValueWrapper local = this.getFromNearCache(this.getRedisCacheKey(key).getKeyBytes());
+        if (local != null) {
+            return CompletableFuture.completedFuture((T) this.fromStoreValue(local.get()));
+        }
+        return this.getAsyncExecutor().submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return CustomRedisCache.this.get(key, valueLoader);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> putAsync(final Object key, final Object value) {
+        return this.getAsyncExecutor().submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                CustomRedisCache.this.put(key, value);
+                return null;
+            }
+        });
+    }
+
+    public CompletableFuture<ValueWrapper> putIfAbsentAsync(final Object key, final Object value) {
+        return this.getAsyncExecutor().submit(new Callable<ValueWrapper>() {
+            @Override
+            public ValueWrapper call() {
+                return CustomRedisCache.this.putIfAbsent(key, value);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> evictAsync(final Object key) {
+        return this.getAsyncExecutor().submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                CustomRedisCache.this.evict(key);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see #getAll(Collection)
+     */
+    public <K> CompletableFuture<Map<K, Object>> getAllAsync(final Collection<K> keys) {
+        return this.getAsyncExecutor().submit(new Callable<Map<K, Object>>() {
+            @Override
+            public Map<K, Object> call() {
+                return CustomRedisCache.this.getAll(keys);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> putAllAsync(final Map<?, ?> values) {
+        return this.getAsyncExecutor().submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                CustomRedisCache.this.putAll(values);
+                return null;
+            }
+        });
+    }
+
+    public CompletableFuture<Void> evictAllAsync(final Collection<?> keys) {
+        return this.getAsyncExecutor().submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                CustomRedisCache.this.evictAll(keys);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 设置异步操作使用的线程池，不设置时使用所有缓存共用的默认线程池
+     *
+     * @param asyncExecutor
+     */
+    public void setAsyncExecutor(CacheAsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    private CacheAsyncExecutor getAsyncExecutor() {
+        CacheAsyncExecutor executor = this.asyncExecutor;
+        return executor != null ? executor : CustomRedisCache.DefaultAsyncExecutor.INSTANCE;
+    }
+
+    private void publishEvictAll(List<byte[]> keys) {
+        if (this.nearCacheInvalidator != null) {
+            this.nearCacheInvalidator.publishEvict(this.getName(), keys);
+        }
+    }
+
+    /**
+     * 设置锁释放通知，等待加载锁时由通知唤醒，不设置时只轮询
+     *
+     * @param lockReleaseNotifier
+     */
+    public void setLockReleaseNotifier(LockReleaseNotifier lockReleaseNotifier) {
+        this.cacheMetadata.setLockReleaseNotifier(lockReleaseNotifier);
+    }
+
+    /**
+     * 压缩统计
+     *
+     * @return
+     */
+    public CompressionStats getCompressionStats() {
+        return this.cacheValueAccessor.getCompressionStats();
+    }
+
+    /**
+     * 命中、加载和耗时统计
+     *
+     * @return
+     */
+    public CacheMetrics getMetrics() {
+        return this.cacheMetadata.getMetrics();
+    }
+
+    public CacheMetricsSnapshot getMetricsSnapshot() {
+        return this.cacheMetadata.getMetrics().snapshot(this.getName(), this.getCompressionStats());
+    }
+
+    /**
+     * 使用带版本号的key前缀，每次访问时按当前版本号生成前缀
+     *
+     * @param cachePrefix
+     */
+    public void setGenerationalPrefix(ExtendRedisCachePrefix cachePrefix) {
+        this.cacheMetadata.setGenerationalPrefix(cachePrefix.isGenerational() ? cachePrefix : null);
     }
 
     @Override
@@ -146,14 +1044,86 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
 
     @Override
     protected Object lookup(Object key) {
-        RedisCacheKey cacheKey = key instanceof RedisCacheKey ? (RedisCacheKey) key : this.getRedisCacheKey(key);
-        byte[] bytes = (byte[]) ((byte[]) this.redisOperations.execute(new CustomRedisCache.AbstractRedisCacheCallback<byte[]>(new CustomRedisCache.BinaryRedisCacheElement(new RedisCacheElement(cacheKey, (Object) null), this.cacheValueAccessor), this.cacheMetadata) {
+        return this.lookup(key instanceof RedisCacheKey ? (RedisCacheKey) key : this.getRedisCacheKey(key), null);
+    }
+
+    private Object lookup(RedisCacheKey cacheKey, Class<?> type) {
+        CustomRedisCache.StoredValue stored = this.lookupEntry(cacheKey, type);
+        // 没有加载方法时无法刷新，逻辑过期的值按未命中处理
+        return stored == null || stored.isExpired(System.currentTimeMillis()) ? null : stored.getValue();
+    }
+
+    private CustomRedisCache.StoredValue lookupEntry(RedisCacheKey cacheKey) {
+        return this.lookupEntry(cacheKey, null);
+    }
+
+    private CustomRedisCache.StoredValue lookupEntry(RedisCacheKey cacheKey, Class<?> type) {
+        final byte[] keyBytes = cacheKey.getKeyBytes();
+        if (this.writeBehind != null) {
+            CustomRedisCache.BinaryRedisCacheElement pending = this.writeBehind.get(keyBytes);
+            if (pending != null) {
+                // 还未写入Redis的回写数据
+                return new CustomRedisCache.StoredValue(pending.getStoreValue(), System.currentTimeMillis(), 0L, 0);
+            }
+        }
+        // 读写都不等待clear的缓存锁，读到旧值或未命中都是允许的
+        long start = System.nanoTime();
+        byte[] bytes = this.redisOperations.execute(new RedisCallback<byte[]>() {
             @Override
-            public byte[] doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
-                return connection.get(element.getKeyBytes());
+            public byte[] doInRedis(RedisConnection connection) throws DataAccessException {
+                return connection.get(keyBytes);
+            }
+        });
+        this.cacheMetadata.getMetrics().recordRedisRead(System.nanoTime() - start);
+        if (bytes == null) {
+            return null;
+        }
+        CustomRedisCache.StoredValue stored = this.cacheValueAccessor.read(bytes, type);
+        // 逻辑过期的值（包括宽限时间内作为旧值返回的）不延长过期时间，否则一直被读取的旧值不会从redis中过期
+        if (stored.getValue() != null && !stored.isExpired(System.currentTimeMillis())) {
+            this.touch(keyBytes);
+        }
+        return stored;
+    }
+
+    /**
+     * 滑动过期：记录命中的key，由后台线程合并后批量延长过期时间，读取不等待
+     */
+    private void touch(byte[] keyBytes) {
+        if (!this.slidingExpiration || this.pendingTouches.size() >= MAX_PENDING_TOUCHES) {
+            return;
+        }
+        if (this.pendingTouches.add(new ByteArrayWrapper(keyBytes)) && this.touchScheduled.compareAndSet(false, true)) {
+            try {
+                TOUCH_EXECUTOR.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        CustomRedisCache.this.flushTouches();
+                    }
+                }, Math.max(this.settings.getSlidingFlushMillis(), 1L), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                this.touchScheduled.set(false);
             }
-        }));
-        return bytes == null ? null : this.cacheValueAccessor.deserializeIfNecessary(bytes);
+        }
+    }
+
+    private void flushTouches() {
+        this.touchScheduled.set(false);
+        List<byte[]> keys = new ArrayList<byte[]>(this.pendingTouches.size());
+        Iterator<ByteArrayWrapper> iterator = this.pendingTouches.iterator();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getArray());
+            iterator.remove();
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            this.redisOperations.execute(new CustomRedisCache.RedisCacheTouchCallback(keys, this.cacheMetadata, this.cacheValueAccessor.getStaleGraceSeconds(),
+                    this.settings.isEntryHeaderRequired()));
+        } catch (RuntimeException e) {
+            log.warn(String.format("Failed to extend expiration of %d keys in cache '%s'", keys.size(), this.getName()), e);
+        }
     }
 
     private RedisCacheKey getRedisCacheKey(Object key) {
@@ -161,11 +1131,14 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
     }
 
     private static boolean isClusterConnection(RedisConnection connection) {
-        while (connection instanceof DecoratedRedisConnection) {
-            connection = ((DecoratedRedisConnection) connection).getDelegate();
-        }
+        return RedisClusterSupport.isClusterConnection(connection);
+    }
 
-        return connection instanceof RedisClusterConnection;
+    /**
+     * 没有设置线程池时使用，第一次异步调用时创建
+     */
+    private static class DefaultAsyncExecutor {
+        private static final CacheAsyncExecutor INSTANCE = new CacheAsyncExecutor(4, 1024, 0L);
     }
 
     private static enum CacheValueRetrievalExceptionFactory {
@@ -197,48 +1170,73 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
 
         @Override
         public byte[] doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
-            byte[] var4;
-            try {
-                this.lock(connection);
-
+            byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+            byte[] lockKey = this.getCacheMetadata().getLoadLockKey(element.getKeyBytes());
+            long waitMillis = MIN_LOCK_WAIT_MILLIS;
+            // 第一次没有拿到加载锁的时间，0表示没有等待过
+            long waitStart = 0L;
+            while (true) {
+                CountDownLatch released = this.registerLockWaiter(lockKey);
                 try {
                     byte[] value = connection.get(element.getKeyBytes());
-                    if (value == null) {
-                        if (!CustomRedisCache.isClusterConnection(connection)) {
-                            connection.watch(new byte[][]{element.getKeyBytes()});
-                            connection.multi();
-                        }
-
-                        value = element.get();
-                        if (value.length == 0) {
-                            connection.del(new byte[][]{element.getKeyBytes()});
-                        } else {
-                            connection.set(element.getKeyBytes(), value);
-                            this.processKeyExpiration(element, connection);
-                            this.maintainKnownKeys(element, connection);
-                        }
-
-                        if (!CustomRedisCache.isClusterConnection(connection)) {
-                            connection.exec();
+                    if (value != null) {
+                        this.recordLoadLockWait(waitStart);
+                        return value;
+                    }
+                    // 只锁当前key，不同key的加载互不影响
+                    if (this.tryLoadLock(lockKey, token, connection)) {
+                        this.recordLoadLockWait(waitStart);
+                        try {
+                            value = connection.get(element.getKeyBytes());
+                            if (value != null) {
+                                return value;
+                            }
+                            value = element.get();
+                            this.writeValue(element, value, connection);
+                            return value;
+                        } finally {
+                            this.releaseLoadLock(lockKey, token, connection);
                         }
-
-                        var4 = value;
-                        return var4;
                     }
-
-                    var4 = value;
-                } catch (RuntimeException var8) {
-                    if (!CustomRedisCache.isClusterConnection(connection)) {
-                        connection.discard();
+                    if (waitStart == 0L) {
+                        waitStart = System.nanoTime();
                     }
-
-                    throw var8;
+                    this.awaitLockRelease(released, waitMillis);
+                    waitMillis = Math.min(waitMillis * 2, MAX_LOCK_WAIT_MILLIS);
+                } finally {
+                    this.unregisterLockWaiter(lockKey, released);
                 }
-            } finally {
-                this.unlock(connection);
             }
+        }
 
-            return var4;
+        private void recordLoadLockWait(long waitStart) {
+            if (waitStart != 0L) {
+                this.getCacheMetadata().getMetrics().recordLockWait(System.nanoTime() - waitStart);
+            }
+        }
+    }
+
+    /**
+     * 提前刷新：拿到key的加载锁才加载并覆盖旧值，拿不到说明其他线程或节点正在加载，直接放弃
+     */
+    static class RedisCacheRefreshCallback extends CustomRedisCache.AbstractRedisCacheCallback<Boolean> {
+        public RedisCacheRefreshCallback(CustomRedisCache.BinaryRedisCacheElement element, CustomRedisCache.RedisCacheMetadata metadata) {
+            super(element, metadata);
+        }
+
+        @Override
+        public Boolean doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
+            byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+            byte[] lockKey = this.getCacheMetadata().getLoadLockKey(element.getKeyBytes());
+            if (!this.tryLoadLock(lockKey, token, connection)) {
+                return false;
+            }
+            try {
+                this.writeValue(element, element.get(), connection);
+                return true;
+            } finally {
+                this.releaseLoadLock(lockKey, token, connection);
+            }
         }
     }
 
@@ -247,114 +1245,728 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
             super(element, metadata);
         }
 
+        /**
+         * 一次 SET NX PX 写入，key已存在时同一个脚本中返回已有的值
+         */
         @Override
         public byte[] doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
-            this.waitForLock(connection);
             byte[] keyBytes = element.getKeyBytes();
-            byte[] value = element.get();
-            if (!connection.setNX(keyBytes, value)) {
-                return connection.get(keyBytes);
+            byte[] ttl = CustomRedisCache.KnownKeysIndex.toBytes(this.timeToLiveMillis(element));
+            byte[] now = CustomRedisCache.KnownKeysIndex.toBytes(System.currentTimeMillis());
+            if (!element.hasKeyPrefix() && !CustomRedisCache.isClusterConnection(connection)) {
+                return (byte[]) RedisScripts.eval(connection, PUT_IF_ABSENT_SCRIPT, ReturnType.VALUE, 2, keyBytes, this.getCacheMetadata().getKnownKeysBucket(keyBytes), element.get(), ttl, now);
+            }
+            byte[] existing = (byte[]) RedisScripts.eval(connection, PUT_IF_ABSENT_SCRIPT, ReturnType.VALUE, 1, keyBytes, element.get(), ttl, now);
+            if (existing == null) {
+                this.maintainKnownKeys(element, connection);
+            }
+            return existing;
+        }
+    }
+
+    static class RedisCachePutCallback extends CustomRedisCache.AbstractRedisCacheCallback<Void> {
+        public RedisCachePutCallback(CustomRedisCache.BinaryRedisCacheElement element, CustomRedisCache.RedisCacheMetadata metadata) {
+            super(element, metadata);
+        }
+
+        @Override
+        public Void doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
+            this.writeValue(element, element.get(), connection);
+            return null;
+        }
+    }
+
+    static class RedisCacheEvictCallback extends CustomRedisCache.AbstractRedisCacheCallback<Void> {
+        public RedisCacheEvictCallback(CustomRedisCache.BinaryRedisCacheElement element, CustomRedisCache.RedisCacheMetadata metadata) {
+            super(element, metadata);
+        }
+
+        @Override
+        public Void doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
+            connection.del(new byte[][]{element.getKeyBytes()});
+            this.cleanKnownKeys(element, connection);
+            return null;
+        }
+    }
+
+    /**
+     * 按前缀清空缓存：SCAN分批取key，每批用UNLINK删除（Redis 4.0以下退回DEL），不再使用阻塞的KEYS；
+     * 集群模式下在每个master上并行执行
+     */
+    static class RedisCacheCleanByPrefixCallback extends CustomRedisCache.LockingRedisCacheCallback<Void> {
+        /**
+         * KEYS:要删除的key；UNLINK在后台线程释放内存，不支持UNLINK的版本退回DEL
+         */
+        static final String UNLINK_LUA = "local removed = redis.pcall('unlink', unpack(KEYS)); if type(removed) == 'table' and removed.err then return redis.call('del', unpack(KEYS)) end; return removed";
+        private static final RedisScript<Object> UNLINK_SCRIPT = RedisScripts.of(UNLINK_LUA);
+        private static final byte[] WILD_CARD = (new StringRedisSerializer()).serialize("*");
+        private final CustomRedisCache.RedisCacheMetadata metadata;
+        private final CacheSettings settings;
+        private final byte[] keyPrefix;
+        private final AtomicLong removed = new AtomicLong();
+        private long startedAt;
+
+        public RedisCacheCleanByPrefixCallback(CustomRedisCache.RedisCacheMetadata metadata, CacheSettings settings) {
+            this(metadata, settings, null);
+        }
+
+        /**
+         * @param keyPrefix 要删除的前缀，不为null时用于删除旧版本的key，不加缓存锁
+         */
+        public RedisCacheCleanByPrefixCallback(CustomRedisCache.RedisCacheMetadata metadata, CacheSettings settings, byte[] keyPrefix) {
+            super(metadata);
+            this.metadata = metadata;
+            this.settings = settings;
+            this.keyPrefix = keyPrefix;
+        }
+
+        @Override
+        public Void doInRedis(RedisConnection connection) throws DataAccessException {
+            // 旧版本的key不会再被读写，删除时不阻塞当前版本的写入
+            return this.keyPrefix != null ? this.doInLock(connection) : super.doInRedis(connection);
+        }
+
+        @Override
+        public Void doInLock(RedisConnection connection) throws DataAccessException {
+            byte[] keyPrefix = this.keyPrefix != null ? this.keyPrefix : this.metadata.getKeyPrefix();
+            final byte[] prefixToUse = Arrays.copyOf(keyPrefix, keyPrefix.length + WILD_CARD.length);
+            System.arraycopy(WILD_CARD, 0, prefixToUse, keyPrefix.length, WILD_CARD.length);
+            this.startedAt = System.currentTimeMillis();
+            if (!CustomRedisCache.isClusterConnection(connection)) {
+                if (connection.getNativeConnection() instanceof Jedis) {
+                    // spring-data-redis 1.8 的ScanCursor关闭时会把Jedis连接一起关闭，这里直接使用Jedis的SCAN
+                    this.clearNode((Jedis) connection.getNativeConnection(), prefixToUse, false);
+                } else {
+                    this.clearStandalone(connection, prefixToUse);
+                }
+            } else if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                RedisClusterSupport.executeOnNodes(connection, RedisClusterSupport.getMasterNodes(connection), new RedisClusterSupport.NodeCallback<Void>() {
+                    @Override
+                    public Void doInNode(String node, Jedis jedis) {
+                        RedisCacheCleanByPrefixCallback.this.clearNode(jedis, prefixToUse, true);
+                        return null;
+                    }
+                });
+            } else if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                final RedisConnection clusterConnection = connection;
+                final LettuceClusterSupport.BatchCallback callback = new LettuceClusterSupport.BatchCallback() {
+                    @Override
+                    public void onBatch(long removed) {
+                        RedisCacheCleanByPrefixCallback.this.onBatchRemoved(removed);
+                    }
+                };
+                RedisClusterSupport.executeInParallel(connection, RedisClusterSupport.getMasterNodes(connection), new RedisClusterSupport.NodeTask<Void>() {
+                    @Override
+                    public Void execute(String node) {
+                        LettuceClusterSupport.scanAndUnlink(clusterConnection, node, prefixToUse, Math.max(1, RedisCacheCleanByPrefixCallback.this.settings.getClearBatchSize()), UNLINK_LUA, callback);
+                        return null;
+                    }
+                });
+            } else {
+                // 集群不能跨slot删除，按slot分组删除
+                Set<byte[]> keys = connection.keys(prefixToUse);
+                for (List<byte[]> slotKeys : RedisClusterSupport.groupBySlot(keys)) {
+                    connection.del(slotKeys.toArray(new byte[slotKeys.size()][]));
+                }
+                this.removed.addAndGet(keys.size());
+            }
+
+            log.info("cache [{}] cleared, {} keys removed in {} ms", this.metadata.getCacheName(), this.removed.get(), System.currentTimeMillis() - this.startedAt);
+            return null;
+        }
+
+        private void clearStandalone(RedisConnection connection, byte[] pattern) {
+            int batchSize = Math.max(1, this.settings.getClearBatchSize());
+            // 先收集一批再删除，SCAN游标和删除不能交错在同一个pipeline里
+            List<byte[]> batch = new ArrayList<byte[]>(batchSize);
+            Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(new StringRedisSerializer().deserialize(pattern)).count(batchSize).build());
+            try {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() >= batchSize) {
+                        this.onBatchRemoved(this.unlink(connection, batch));
+                        batch.clear();
+                    }
+                }
+            } finally {
+                try {
+                    cursor.close();
+                } catch (IOException e) {
+                    log.warn("close scan cursor failed", e);
+                }
+            }
+            if (!batch.isEmpty()) {
+                this.onBatchRemoved(this.unlink(connection, batch));
+            }
+        }
+
+        private long unlink(RedisConnection connection, List<byte[]> keys) {
+            Object result = RedisScripts.eval(connection, UNLINK_SCRIPT, ReturnType.INTEGER, keys.size(), keys.toArray(new byte[keys.size()][]));
+            return result instanceof Number ? ((Number) result).longValue() : 0L;
+        }
+
+        private void clearNode(Jedis jedis, byte[] pattern, boolean cluster) {
+            byte[] unlinkSha = jedis.scriptLoad(new StringRedisSerializer().serialize(UNLINK_SCRIPT.getScriptAsString()));
+            ScanParams params = new ScanParams().match(pattern).count(Math.max(1, this.settings.getClearBatchSize()));
+            byte[] cursor = ScanParams.SCAN_POINTER_START_BINARY;
+            do {
+                ScanResult<byte[]> page = jedis.scan(cursor, params);
+                cursor = page.getCursorAsBytes();
+                if (page.getResult().isEmpty()) {
+                    continue;
+                }
+                // 集群中同一个脚本的key必须在同一个slot，按slot分组后一次pipeline执行
+                Collection<List<byte[]>> groups = cluster ? RedisClusterSupport.groupBySlot(page.getResult()) : Collections.singletonList(page.getResult());
+                Pipeline pipeline = jedis.pipelined();
+                List<Response<Object>> responses = new ArrayList<Response<Object>>(groups.size());
+                for (List<byte[]> keys : groups) {
+                    responses.add(pipeline.evalsha(unlinkSha, keys, Collections.<byte[]>emptyList()));
+                }
+                pipeline.sync();
+                long count = 0L;
+                for (Response<Object> response : responses) {
+                    Object result = response.get();
+                    count += result instanceof Number ? ((Number) result).longValue() : 0L;
+                }
+                this.onBatchRemoved(count);
+            } while (!Arrays.equals(cursor, ScanParams.SCAN_POINTER_START_BINARY));
+        }
+
+        private void onBatchRemoved(long count) {
+            long interval = this.settings.getClearProgressLogInterval();
+            long total = this.removed.addAndGet(count);
+            if (interval > 0 && total / interval != (total - count) / interval) {
+                log.info("clearing cache [{}], {} keys removed in {} ms", this.metadata.getCacheName(), total, System.currentTimeMillis() - this.startedAt);
+            }
+            long pause = this.settings.getClearBatchPauseMillis();
+            if (pause > 0) {
+                try {
+                    Thread.sleep(pause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RedisSystemException("Interrupted while clearing cache " + this.metadata.getCacheName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 不使用前缀时按已知key索引清空缓存：每轮从所有分桶中各取一页，单机一次pipeline、集群按节点并行读取，
+     * 删除这一页的key后再从分桶中移除，直到所有分桶为空；最后删除分桶和旧版本的单个集合
+     */
+    static class RedisCacheCleanByKeysCallback extends CustomRedisCache.LockingRedisCacheCallback<Void> {
+        private final CustomRedisCache.RedisCacheMetadata metadata;
+        private final CacheSettings settings;
+
+        RedisCacheCleanByKeysCallback(CustomRedisCache.RedisCacheMetadata metadata, CacheSettings settings) {
+            super(metadata);
+            this.metadata = metadata;
+            this.settings = settings;
+        }
+
+        @Override
+        public Void doInLock(RedisConnection connection) {
+            long startedAt = System.currentTimeMillis();
+            int pageSize = Math.max(1, this.settings.getClearBatchSize());
+            List<byte[]> buckets = new ArrayList<byte[]>(Arrays.asList(this.metadata.getKnownKeysBuckets()));
+            // 旧版本所有key记录在同一个集合中
+            buckets.add(this.metadata.getSetOfKnownKeysKey());
+            long removed = 0L;
+            List<byte[]> remaining = buckets;
+            while (!remaining.isEmpty()) {
+                Map<ByteArrayWrapper, List<byte[]>> pages = this.readPages(connection, remaining, pageSize);
+                List<byte[]> keys = new ArrayList<byte[]>();
+                List<byte[]> next = new ArrayList<byte[]>();
+                for (byte[] bucket : remaining) {
+                    List<byte[]> members = pages.get(new ByteArrayWrapper(bucket));
+                    if (members == null || members.isEmpty()) {
+                        continue;
+                    }
+                    keys.addAll(members);
+                    if (members.size() >= pageSize) {
+                        next.add(bucket);
+                    }
+                }
+                if (!keys.isEmpty()) {
+                    CustomRedisCache.RedisCacheMultiEvictCallback.deleteKeys(connection, keys);
+                    this.removeMembers(connection, pages);
+                    removed += keys.size();
+                }
+                remaining = next;
+            }
+            connection.del(buckets.toArray(new byte[buckets.size()][]));
+            log.info("cache [{}] cleared, {} keys removed in {} ms", this.metadata.getCacheName(), removed, System.currentTimeMillis() - startedAt);
+            return null;
+        }
+
+        private Map<ByteArrayWrapper, List<byte[]>> readPages(RedisConnection connection, List<byte[]> buckets, final int pageSize) {
+            final Map<ByteArrayWrapper, List<byte[]>> pages = new ConcurrentHashMap<ByteArrayWrapper, List<byte[]>>();
+            if (!CustomRedisCache.isClusterConnection(connection)) {
+                connection.openPipeline();
+                List<Object> results;
+                try {
+                    for (byte[] bucket : buckets) {
+                        connection.zRange(bucket, 0L, pageSize - 1L);
+                    }
+                } finally {
+                    results = connection.closePipeline();
+                }
+                for (int i = 0; i < buckets.size(); i++) {
+                    // ZRANGE在pipeline中的结果
+                    @SuppressWarnings("unchecked")
+                    Collection<byte[]> page = (Collection<byte[]>) results.get(i);
+                    pages.put(new ByteArrayWrapper(buckets.get(i)), new ArrayList<byte[]>(page));
+                }
+                return pages;
+            }
+            if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, buckets);
+                RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Void>() {
+                    @Override
+                    public Void doInNode(String node, Jedis jedis) {
+                        Pipeline pipeline = jedis.pipelined();
+                        Map<ByteArrayWrapper, Response<Set<byte[]>>> responses = new HashMap<ByteArrayWrapper, Response<Set<byte[]>>>();
+                        for (List<byte[]> slotBuckets : groups.get(node).values()) {
+                            for (byte[] bucket : slotBuckets) {
+                                responses.put(new ByteArrayWrapper(bucket), pipeline.zrange(bucket, 0L, pageSize - 1L));
+                            }
+                        }
+                        pipeline.sync();
+                        for (Map.Entry<ByteArrayWrapper, Response<Set<byte[]>>> response : responses.entrySet()) {
+                            pages.put(response.getKey(), new ArrayList<byte[]>(response.getValue().get()));
+                        }
+                        return null;
+                    }
+                });
+                return pages;
+            }
+            if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                List<List<byte[]>> results = LettuceClusterSupport.zRange(connection, buckets, pageSize);
+                for (int i = 0; i < buckets.size(); i++) {
+                    pages.put(new ByteArrayWrapper(buckets.get(i)), results.get(i));
+                }
+                return pages;
+            }
+            for (byte[] bucket : buckets) {
+                pages.put(new ByteArrayWrapper(bucket), new ArrayList<byte[]>(connection.zRange(bucket, 0L, pageSize - 1L)));
+            }
+            return pages;
+        }
+
+        private void removeMembers(RedisConnection connection, final Map<ByteArrayWrapper, List<byte[]>> pages) {
+            if (!CustomRedisCache.isClusterConnection(connection)) {
+                connection.openPipeline();
+                try {
+                    for (Map.Entry<ByteArrayWrapper, List<byte[]>> page : pages.entrySet()) {
+                        if (!page.getValue().isEmpty()) {
+                            connection.zRem(page.getKey().getArray(), page.getValue().toArray(new byte[page.getValue().size()][]));
+                        }
+                    }
+                } finally {
+                    connection.closePipeline();
+                }
+                return;
+            }
+            if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                List<byte[]> buckets = new ArrayList<byte[]>(pages.size());
+                for (ByteArrayWrapper bucket : pages.keySet()) {
+                    buckets.add(bucket.getArray());
+                }
+                final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, buckets);
+                RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Void>() {
+                    @Override
+                    public Void doInNode(String node, Jedis jedis) {
+                        Pipeline pipeline = jedis.pipelined();
+                        for (List<byte[]> slotBuckets : groups.get(node).values()) {
+                            for (byte[] bucket : slotBuckets) {
+                                List<byte[]> members = pages.get(new ByteArrayWrapper(bucket));
+                                if (!members.isEmpty()) {
+                                    pipeline.zrem(bucket, members.toArray(new byte[members.size()][]));
+                                }
+                            }
+                        }
+                        pipeline.sync();
+                        return null;
+                    }
+                });
+                return;
+            }
+            if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                List<byte[]> buckets = new ArrayList<byte[]>(pages.size());
+                List<List<byte[]>> members = new ArrayList<List<byte[]>>(pages.size());
+                for (Map.Entry<ByteArrayWrapper, List<byte[]>> page : pages.entrySet()) {
+                    buckets.add(page.getKey().getArray());
+                    members.add(page.getValue());
+                }
+                LettuceClusterSupport.zRem(connection, buckets, members);
+                return;
+            }
+            for (Map.Entry<ByteArrayWrapper, List<byte[]>> page : pages.entrySet()) {
+                if (!page.getValue().isEmpty()) {
+                    connection.zRem(page.getKey().getArray(), page.getValue().toArray(new byte[page.getValue().size()][]));
+                }
+            }
+        }
+    }
+
+    static class RedisCacheMultiGetCallback implements RedisCallback<List<byte[]>> {
+        private final List<byte[]> keys;
+
+        RedisCacheMultiGetCallback(List<byte[]> keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public List<byte[]> doInRedis(RedisConnection connection) throws DataAccessException {
+            if (!CustomRedisCache.isClusterConnection(connection)) {
+                return connection.mGet(this.keys.toArray(new byte[this.keys.size()][]));
+            }
+
+            Map<ByteArrayWrapper, byte[]> values = new HashMap<ByteArrayWrapper, byte[]>();
+            if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                try {
+                    final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, this.keys);
+                    Map<String, Map<ByteArrayWrapper, byte[]>> nodeValues = RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Map<ByteArrayWrapper, byte[]>>() {
+                        @Override
+                        public Map<ByteArrayWrapper, byte[]> doInNode(String node, Jedis jedis) {
+                            Collection<List<byte[]>> slotKeys = groups.get(node).values();
+                            Pipeline pipeline = jedis.pipelined();
+                            List<Response<List<byte[]>>> responses = new ArrayList<Response<List<byte[]>>>(slotKeys.size());
+                            for (List<byte[]> keys : slotKeys) {
+                                responses.add(pipeline.mget(keys.toArray(new byte[keys.size()][])));
+                            }
+                            pipeline.sync();
+                            Map<ByteArrayWrapper, byte[]> result = new HashMap<ByteArrayWrapper, byte[]>();
+                            int index = 0;
+                            for (List<byte[]> keys : slotKeys) {
+                                List<byte[]> slotValues = responses.get(index++).get();
+                                for (int i = 0; i < keys.size(); i++) {
+                                    result.put(new ByteArrayWrapper(keys.get(i)), slotValues.get(i));
+                                }
+                            }
+                            return result;
+                        }
+                    });
+                    for (Map<ByteArrayWrapper, byte[]> nodeResult : nodeValues.values()) {
+                        values.putAll(nodeResult);
+                    }
+                } catch (RuntimeException e) {
+                    // 拓扑变化等情况退回逐个读取，由集群连接处理重定向
+                    values.clear();
+                    for (byte[] key : this.keys) {
+                        values.put(new ByteArrayWrapper(key), connection.get(key));
+                    }
+                }
+            } else if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                return LettuceClusterSupport.mGet(connection, this.keys);
             } else {
-                this.maintainKnownKeys(element, connection);
-                this.processKeyExpiration(element, connection);
-                return null;
+                for (byte[] key : this.keys) {
+                    values.put(new ByteArrayWrapper(key), connection.get(key));
+                }
+            }
+
+            List<byte[]> result = new ArrayList<byte[]>(this.keys.size());
+            for (byte[] key : this.keys) {
+                result.add(values.get(new ByteArrayWrapper(key)));
             }
+            return result;
         }
     }
 
-    static class RedisCachePutCallback extends CustomRedisCache.AbstractRedisCacheCallback<Void> {
-        public RedisCachePutCallback(CustomRedisCache.BinaryRedisCacheElement element, CustomRedisCache.RedisCacheMetadata metadata) {
-            super(element, metadata);
+    static class RedisCacheMultiPutCallback implements RedisCallback<Void> {
+        private final List<CustomRedisCache.BinaryRedisCacheElement> elements;
+        private final CustomRedisCache.RedisCacheMetadata metadata;
+
+        RedisCacheMultiPutCallback(List<CustomRedisCache.BinaryRedisCacheElement> elements, CustomRedisCache.RedisCacheMetadata metadata) {
+            this.elements = elements;
+            this.metadata = metadata;
         }
 
         @Override
-        public Void doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
+        public Void doInRedis(RedisConnection connection) throws DataAccessException {
             if (!CustomRedisCache.isClusterConnection(connection)) {
-                connection.multi();
+                connection.openPipeline();
+                try {
+                    for (CustomRedisCache.BinaryRedisCacheElement element : this.elements) {
+                        this.write(element, connection);
+                    }
+                } finally {
+                    connection.closePipeline();
+                }
+                this.maintainKnownKeys(connection);
+                return null;
             }
 
-            if (element.get().length == 0) {
-                connection.del(new byte[][]{element.getKeyBytes()});
-            } else {
-                connection.set(element.getKeyBytes(), element.get());
-                this.processKeyExpiration(element, connection);
-                this.maintainKnownKeys(element, connection);
+            if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                final Map<ByteArrayWrapper, CustomRedisCache.BinaryRedisCacheElement> byKey = new HashMap<ByteArrayWrapper, CustomRedisCache.BinaryRedisCacheElement>();
+                List<byte[]> keys = new ArrayList<byte[]>(this.elements.size());
+                for (CustomRedisCache.BinaryRedisCacheElement element : this.elements) {
+                    byKey.put(new ByteArrayWrapper(element.getKeyBytes()), element);
+                    keys.add(element.getKeyBytes());
+                }
+                try {
+                    final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, keys);
+                    RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Void>() {
+                        @Override
+                        public Void doInNode(String node, Jedis jedis) {
+                            Pipeline pipeline = jedis.pipelined();
+                            List<Response<?>> responses = new ArrayList<Response<?>>();
+                            for (List<byte[]> slotKeys : groups.get(node).values()) {
+                                for (byte[] key : slotKeys) {
+                                    CustomRedisCache.BinaryRedisCacheElement element = byKey.get(new ByteArrayWrapper(key));
+                                    byte[] value = element.get();
+                                    if (value.length == 0) {
+                                        responses.add(pipeline.del(key));
+                                    } else if (element.isEternal()) {
+                                        responses.add(pipeline.set(key, value));
+                                    } else {
+                                        responses.add(pipeline.setex(key, (int) element.getTimeToLive(), value));
+                                    }
+                                }
+                            }
+                            pipeline.sync();
+                            for (Response<?> response : responses) {
+                                response.get();
+                            }
+                            return null;
+                        }
+                    });
+                    this.maintainKnownKeys(connection);
+                    return null;
+                } catch (RuntimeException e) {
+                    // 拓扑变化等情况退回逐个写入
+                }
+            } else if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                List<byte[]> keys = new ArrayList<byte[]>(this.elements.size());
+                List<byte[]> values = new ArrayList<byte[]>(this.elements.size());
+                List<Long> timeToLives = new ArrayList<Long>(this.elements.size());
+                for (CustomRedisCache.BinaryRedisCacheElement element : this.elements) {
+                    keys.add(element.getKeyBytes());
+                    values.add(element.get());
+                    timeToLives.add(element.isEternal() ? 0L : element.getTimeToLive());
+                }
+                LettuceClusterSupport.write(connection, keys, values, timeToLives);
+                this.maintainKnownKeys(connection);
+                return null;
             }
 
-            if (!CustomRedisCache.isClusterConnection(connection)) {
-                connection.exec();
+            for (CustomRedisCache.BinaryRedisCacheElement element : this.elements) {
+                this.write(element, connection);
             }
-
+            this.maintainKnownKeys(connection);
             return null;
         }
-    }
 
-    static class RedisCacheEvictCallback extends CustomRedisCache.AbstractRedisCacheCallback<Void> {
-        public RedisCacheEvictCallback(CustomRedisCache.BinaryRedisCacheElement element, CustomRedisCache.RedisCacheMetadata metadata) {
-            super(element, metadata);
+        private void write(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) {
+            if (element.get().length == 0) {
+                connection.del(new byte[][]{element.getKeyBytes()});
+            } else if (element.isEternal()) {
+                connection.set(element.getKeyBytes(), element.get());
+            } else {
+                connection.setEx(element.getKeyBytes(), element.getTimeToLive(), element.get());
+            }
         }
 
-        @Override
-        public Void doInRedis(CustomRedisCache.BinaryRedisCacheElement element, RedisConnection connection) throws DataAccessException {
-            connection.del(new byte[][]{element.getKeyBytes()});
-            this.cleanKnownKeys(element, connection);
-            return null;
+        private void maintainKnownKeys(RedisConnection connection) {
+            if (this.metadata.usesKeyPrefix()) {
+                return;
+            }
+            List<byte[]> keys = new ArrayList<byte[]>(this.elements.size());
+            List<Long> timeToLives = new ArrayList<Long>(this.elements.size());
+            for (CustomRedisCache.BinaryRedisCacheElement element : this.elements) {
+                keys.add(element.getKeyBytes());
+                timeToLives.add(element.isEternal() ? 0L : TimeUnit.SECONDS.toMillis(element.getTimeToLive()));
+            }
+            CustomRedisCache.KnownKeysIndex.add(connection, this.metadata, keys, timeToLives);
         }
     }
 
-    static class RedisCacheCleanByPrefixCallback extends CustomRedisCache.LockingRedisCacheCallback<Void> {
-        private static final byte[] REMOVE_KEYS_BY_PATTERN_LUA = (new StringRedisSerializer()).serialize("local keys = redis.call('KEYS', ARGV[1]); local keysCount = table.getn(keys); if(keysCount > 0) then for _, key in ipairs(keys) do redis.call('del', key); end; end; return keysCount;");
-        private static final byte[] WILD_CARD = (new StringRedisSerializer()).serialize("*");
+    static class RedisCacheMultiEvictCallback implements RedisCallback<Void> {
+        private final List<byte[]> keys;
         private final CustomRedisCache.RedisCacheMetadata metadata;
 
-        public RedisCacheCleanByPrefixCallback(CustomRedisCache.RedisCacheMetadata metadata) {
-            super(metadata);
+        RedisCacheMultiEvictCallback(List<byte[]> keys, CustomRedisCache.RedisCacheMetadata metadata) {
+            this.keys = keys;
             this.metadata = metadata;
         }
 
         @Override
-        public Void doInLock(RedisConnection connection) throws DataAccessException {
-            byte[] prefixToUse = Arrays.copyOf(this.metadata.getKeyPrefix(), this.metadata.getKeyPrefix().length + WILD_CARD.length);
-            System.arraycopy(WILD_CARD, 0, prefixToUse, this.metadata.getKeyPrefix().length, WILD_CARD.length);
-            if (CustomRedisCache.isClusterConnection(connection)) {
-                Set<byte[]> keys = connection.keys(prefixToUse);
-                if (!keys.isEmpty()) {
-                    connection.del((byte[][]) keys.toArray(new byte[keys.size()][]));
-                }
-            } else {
-                connection.eval(REMOVE_KEYS_BY_PATTERN_LUA, ReturnType.INTEGER, 0, new byte[][]{prefixToUse});
+        public Void doInRedis(RedisConnection connection) throws DataAccessException {
+            deleteKeys(connection, this.keys);
+            if (!this.metadata.usesKeyPrefix()) {
+                CustomRedisCache.KnownKeysIndex.remove(connection, this.metadata, this.keys);
             }
-
             return null;
         }
+
+        /**
+         * 单机一次DEL，Jedis集群按节点并行pipeline，Lettuce集群异步批量执行
+         */
+        static void deleteKeys(RedisConnection connection, List<byte[]> keys) {
+            final byte[][] keyArray = keys.toArray(new byte[keys.size()][]);
+            if (!CustomRedisCache.isClusterConnection(connection)) {
+                connection.del(keyArray);
+            } else if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, keys);
+                RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Void>() {
+                    @Override
+                    public Void doInNode(String node, Jedis jedis) {
+                        Pipeline pipeline = jedis.pipelined();
+                        for (List<byte[]> slotKeys : groups.get(node).values()) {
+                            pipeline.del(slotKeys.toArray(new byte[slotKeys.size()][]));
+                        }
+                        pipeline.syncAndReturnAll();
+                        return null;
+                    }
+                });
+            } else if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                LettuceClusterSupport.del(connection, keys);
+            } else {
+                for (byte[] key : keyArray) {
+                    connection.del(new byte[][]{key});
+                }
+            }
+        }
     }
 
-    static class RedisCacheCleanByKeysCallback extends CustomRedisCache.LockingRedisCacheCallback<Void> {
-        private static final int PAGE_SIZE = 128;
+    /**
+     * 批量延长过期时间，单机一次pipeline，集群按节点并行pipeline；key已不存在时EXPIRE不生效。
+     * 值中保存了附加信息时同时改写其中的逻辑过期时间，否则一直命中的key仍会在第一次到期后按过期处理
+     */
+    static class RedisCacheTouchCallback implements RedisCallback<Void> {
+        /**
+         * KEYS:缓存key ARGV:每两个一组，redis中的过期时间-秒和8字节的逻辑过期时间；
+         * 只改写以0x00开头且带附加信息标志的值，逻辑过期时间在值中的位置见 {@link CustomRedisCache.CacheValueAccessor}
+         */
+        static final String TOUCH_LUA = "for i, key in ipairs(KEYS) do "
+                + "local head = redis.call('getrange', key, 0, 1); "
+                + "if #head == 2 and string.byte(head, 1) == 0 and string.byte(head, 2) % 2 == 1 then redis.call('setrange', key, 10, ARGV[i * 2]) end; "
+                + "redis.call('expire', key, ARGV[i * 2 - 1]) "
+                + "end; "
+                + "return #KEYS";
+
+        private static final RedisScript<Object> TOUCH_SCRIPT = RedisScripts.of(TOUCH_LUA);
+        private static final byte[] TOUCH_SCRIPT_BYTES = TOUCH_LUA.getBytes(StandardCharsets.UTF_8);
+        private final List<byte[]> keys;
         private final CustomRedisCache.RedisCacheMetadata metadata;
+        private final long staleGraceSeconds;
+        private final boolean rewriteHeader;
 
-        RedisCacheCleanByKeysCallback(CustomRedisCache.RedisCacheMetadata metadata) {
-            super(metadata);
+        RedisCacheTouchCallback(List<byte[]> keys, CustomRedisCache.RedisCacheMetadata metadata, long staleGraceSeconds, boolean rewriteHeader) {
+            this.keys = keys;
             this.metadata = metadata;
+            this.staleGraceSeconds = staleGraceSeconds;
+            this.rewriteHeader = rewriteHeader;
         }
 
         @Override
-        public Void doInLock(RedisConnection connection) {
-            int offset = 0;
-            boolean finished = false;
+        public Void doInRedis(RedisConnection connection) throws DataAccessException {
+            if (!CustomRedisCache.isClusterConnection(connection)) {
+                if (this.rewriteHeader) {
+                    // 脚本不能在pipeline中执行，所有key一次脚本
+                    RedisScripts.eval(connection, TOUCH_SCRIPT, ReturnType.INTEGER, this.keys.size(), this.touchArgs(this.keys));
+                } else {
+                    connection.openPipeline();
+                    try {
+                        for (byte[] key : this.keys) {
+                            connection.expire(key, this.nextTimeToLive(this.metadata.nextTimeToLive()));
+                        }
+                    } finally {
+                        connection.closePipeline();
+                    }
+                }
+                this.touchKnownKeys(connection);
+                return null;
+            }
 
-            do {
-                Set<byte[]> keys = connection.zRange(this.metadata.getSetOfKnownKeysKey(), (long) (offset * 128), (long) ((offset + 1) * 128 - 1));
-                finished = keys.size() < 128;
-                ++offset;
-                if (!keys.isEmpty()) {
-                    connection.del((byte[][]) keys.toArray(new byte[keys.size()][]));
+            if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                try {
+                    final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, this.keys);
+                    RedisClusterSupport.executeOnNodes(connection, groups.keySet(), new RedisClusterSupport.NodeCallback<Void>() {
+                        @Override
+                        public Void doInNode(String node, Jedis jedis) {
+                            Pipeline pipeline = jedis.pipelined();
+                            for (List<byte[]> slotKeys : groups.get(node).values()) {
+                                if (RedisCacheTouchCallback.this.rewriteHeader) {
+                                    pipeline.eval(TOUCH_SCRIPT_BYTES, slotKeys.size(), RedisCacheTouchCallback.this.touchArgs(slotKeys));
+                                    continue;
+                                }
+                                for (byte[] key : slotKeys) {
+                                    pipeline.expire(key, (int) RedisCacheTouchCallback.this.nextTimeToLive(RedisCacheTouchCallback.this.metadata.nextTimeToLive()));
+                                }
+                            }
+                            pipeline.sync();
+                            return null;
+                        }
+                    });
+                    this.touchKnownKeys(connection);
+                    return null;
+                } catch (RuntimeException e) {
+                    // 拓扑变化等情况退回逐个执行
+                }
+            } else if (RedisClusterSupport.supportsLettuceExecution(connection)) {
+                if (this.rewriteHeader) {
+                    List<byte[][]> keys = new ArrayList<byte[][]>();
+                    List<byte[][]> args = new ArrayList<byte[][]>();
+                    for (List<byte[]> slotKeys : RedisClusterSupport.groupBySlot(this.keys)) {
+                        byte[][] keysAndArgs = this.touchArgs(slotKeys);
+                        keys.add(Arrays.copyOfRange(keysAndArgs, 0, slotKeys.size()));
+                        args.add(Arrays.copyOfRange(keysAndArgs, slotKeys.size(), keysAndArgs.length));
+                    }
+                    LettuceClusterSupport.eval(connection, TOUCH_LUA, keys, args);
+                } else {
+                    List<Long> timeToLives = new ArrayList<Long>(this.keys.size());
+                    for (int i = 0; i < this.keys.size(); i++) {
+                        timeToLives.add(this.nextTimeToLive(this.metadata.nextTimeToLive()));
+                    }
+                    LettuceClusterSupport.expire(connection, this.keys, timeToLives);
                 }
-            } while (!finished);
+                this.touchKnownKeys(connection);
+                return null;
+            }
 
-            connection.del(new byte[][]{this.metadata.getSetOfKnownKeysKey()});
+            for (byte[] key : this.keys) {
+                if (this.rewriteHeader) {
+                    RedisScripts.eval(connection, TOUCH_SCRIPT, ReturnType.INTEGER, 1, this.touchArgs(Collections.singletonList(key)));
+                } else {
+                    connection.expire(key, this.nextTimeToLive(this.metadata.nextTimeToLive()));
+                }
+            }
+            this.touchKnownKeys(connection);
             return null;
         }
+
+        /**
+         * redis中的过期时间，开启宽限时间时多保留宽限时间
+         *
+         * @param timeToLive 逻辑存活时间-秒
+         */
+        private long nextTimeToLive(long timeToLive) {
+            return timeToLive + this.staleGraceSeconds;
+        }
+
+        private byte[][] touchArgs(List<byte[]> keys) {
+            byte[][] keysAndArgs = new byte[keys.size() * 3][];
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < keys.size(); i++) {
+                long timeToLive = this.metadata.nextTimeToLive();
+                keysAndArgs[i] = keys.get(i);
+                keysAndArgs[keys.size() + i * 2] = String.valueOf(this.nextTimeToLive(timeToLive)).getBytes(StandardCharsets.US_ASCII);
+                keysAndArgs[keys.size() + i * 2 + 1] = ByteBuffer.allocate(8).putLong(now + timeToLive * 1000L).array();
+            }
+            return keysAndArgs;
+        }
+
+        /**
+         * 不使用前缀时更新key在索引中的过期时间，按最长的过期时间记录
+         */
+        private void touchKnownKeys(RedisConnection connection) {
+            if (!this.metadata.usesKeyPrefix()) {
+                long timeToLive = this.metadata.getExpirationPolicy().getExpiration();
+                timeToLive += (long) (timeToLive * this.metadata.getExpirationPolicy().getJitter()) + this.staleGraceSeconds;
+                CustomRedisCache.KnownKeysIndex.add(connection, this.metadata, this.keys, Collections.nCopies(this.keys.size(), TimeUnit.SECONDS.toMillis(timeToLive)));
+            }
+        }
     }
 
     abstract static class LockingRedisCacheCallback<T> implements RedisCallback<T> {
@@ -385,7 +1997,32 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
     }
 
     abstract static class AbstractRedisCacheCallback<T> implements RedisCallback<T> {
-        private long WAIT_FOR_LOCK_TIMEOUT = 300L;
+        /**
+         * KEYS[1]:缓存key KEYS[2]:已知key分桶 ARGV[1]:值 ARGV[2]:过期时间-毫秒，0表示不过期 ARGV[3]:当前时间-毫秒
+         */
+        static final String PUT_LUA = CustomRedisCache.KnownKeysIndex.INDEX_FUNCTION_LUA
+                + "if ARGV[2] == '0' then redis.call('set', KEYS[1], ARGV[1]) else redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) end; "
+                + "index(KEYS[2], KEYS[1], tonumber(ARGV[2]), tonumber(ARGV[3])); "
+                + "return 1";
+
+        /**
+         * KEYS[1]:缓存key KEYS[2]:已知key分桶，可选 ARGV[1]:值 ARGV[2]:过期时间-毫秒，0表示不过期 ARGV[3]:当前时间-毫秒；
+         * 写入成功返回nil，key已存在时返回已有的值
+         */
+        static final String PUT_IF_ABSENT_LUA = CustomRedisCache.KnownKeysIndex.INDEX_FUNCTION_LUA
+                + "local written; "
+                + "if ARGV[2] == '0' then written = redis.call('set', KEYS[1], ARGV[1], 'NX') else written = redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) end; "
+                + "if not written then return redis.call('get', KEYS[1]) end; "
+                + "if KEYS[2] then index(KEYS[2], KEYS[1], tonumber(ARGV[2]), tonumber(ARGV[3])) end; "
+                + "return false";
+
+        static final RedisScript<Object> PUT_IF_ABSENT_SCRIPT = RedisScripts.of(PUT_IF_ABSENT_LUA);
+        private static final RedisScript<Object> PUT_SCRIPT = RedisScripts.of(PUT_LUA);
+        private static final RedisScript<Object> TRY_LOCK_SCRIPT = RedisScripts.of(LockReleaseNotifier.TRY_LOCK_LUA);
+        private static final RedisScript<Object> RELEASE_LOCK_SCRIPT = RedisScripts.of(LockReleaseNotifier.RELEASE_LUA);
+        // 收不到释放通知时的兜底等待，从MIN开始逐次翻倍到MAX
+        static final long MIN_LOCK_WAIT_MILLIS = 20L;
+        static final long MAX_LOCK_WAIT_MILLIS = 300L;
         private final CustomRedisCache.BinaryRedisCacheElement element;
         private final CustomRedisCache.RedisCacheMetadata cacheMetadata;
 
@@ -394,67 +2031,215 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
             this.cacheMetadata = metadata;
         }
 
+        /**
+         * 写入只执行一条命令，不检查clear的锁：检查和写入之间clear仍可能开始，检查并不能避免交错
+         */
         @Override
         public T doInRedis(RedisConnection connection) throws DataAccessException {
-            this.waitForLock(connection);
             return this.doInRedis(this.element, connection);
         }
 
         public abstract T doInRedis(CustomRedisCache.BinaryRedisCacheElement var1, RedisConnection var2) throws DataAccessException;
 
-        protected void processKeyExpiration(RedisCacheElement element, RedisConnection connection) {
-            if (!element.isEternal()) {
-                connection.expire(element.getKeyBytes(), element.getTimeToLive());
-            }
-
+        /**
+         * @return 0表示不过期
+         */
+        protected long timeToLiveMillis(RedisCacheElement element) {
+            return element.isEternal() ? 0L : TimeUnit.SECONDS.toMillis(element.getTimeToLive());
         }
 
         protected void maintainKnownKeys(RedisCacheElement element, RedisConnection connection) {
             if (!element.hasKeyPrefix()) {
-                connection.zAdd(this.cacheMetadata.getSetOfKnownKeysKey(), 0.0D, element.getKeyBytes());
-                if (!element.isEternal()) {
-                    connection.expire(this.cacheMetadata.getSetOfKnownKeysKey(), element.getTimeToLive());
-                }
+                CustomRedisCache.KnownKeysIndex.add(connection, this.cacheMetadata, Collections.singletonList(element.getKeyBytes()), Collections.singletonList(this.timeToLiveMillis(element)));
             }
 
         }
 
         protected void cleanKnownKeys(RedisCacheElement element, RedisConnection connection) {
             if (!element.hasKeyPrefix()) {
-                connection.zRem(this.cacheMetadata.getSetOfKnownKeysKey(), new byte[][]{element.getKeyBytes()});
+                CustomRedisCache.KnownKeysIndex.remove(connection, this.cacheMetadata, Collections.singletonList(element.getKeyBytes()));
             }
 
         }
 
-        protected boolean waitForLock(RedisConnection connection) {
-            boolean foundLock = false;
+        /**
+         * 使用前缀时只执行一次带过期时间的SET（SETEX，过期时间为整秒；spring-data-redis的Jedis集群连接中PSETEX不直接走JedisCluster）；
+         * 维护已知key索引时单机模式在一个脚本中同时写入值和索引，集群模式下两个key不在同一个slot，写入值后再执行一次维护索引的脚本
+         */
+        protected void writeValue(CustomRedisCache.BinaryRedisCacheElement element, byte[] value, RedisConnection connection) {
+            byte[] keyBytes = element.getKeyBytes();
+            if (value.length == 0) {
+                connection.del(new byte[][]{keyBytes});
+                return;
+            }
+            if (!element.hasKeyPrefix() && !CustomRedisCache.isClusterConnection(connection)) {
+                RedisScripts.eval(connection, PUT_SCRIPT, ReturnType.INTEGER, 2, keyBytes, this.cacheMetadata.getKnownKeysBucket(keyBytes), value,
+                        CustomRedisCache.KnownKeysIndex.toBytes(this.timeToLiveMillis(element)), CustomRedisCache.KnownKeysIndex.toBytes(System.currentTimeMillis()));
+                return;
+            }
+            if (element.isEternal()) {
+                connection.set(keyBytes, value);
+            } else {
+                connection.setEx(keyBytes, element.getTimeToLive(), value);
+            }
+            this.maintainKnownKeys(element, connection);
+        }
 
-            boolean retry;
-            do {
-                retry = false;
-                if (connection.exists(this.cacheMetadata.getCacheLockKey())) {
-                    foundLock = true;
+        protected boolean tryLoadLock(byte[] lockKey, byte[] token, RedisConnection connection) {
+            byte[] lease = String.valueOf(this.cacheMetadata.getLoadLockLeaseMillis()).getBytes(StandardCharsets.US_ASCII);
+            Long result = (Long) RedisScripts.eval(connection, TRY_LOCK_SCRIPT, ReturnType.INTEGER, 1, lockKey, token, lease);
+            return result != null && result > 0;
+        }
 
-                    try {
-                        Thread.sleep(this.WAIT_FOR_LOCK_TIMEOUT);
-                    } catch (InterruptedException var5) {
-                        Thread.currentThread().interrupt();
-                    }
+        protected void releaseLoadLock(byte[] lockKey, byte[] token, RedisConnection connection) {
+            LockReleaseNotifier notifier = this.cacheMetadata.getLockReleaseNotifier();
+            if (notifier != null) {
+                RedisScripts.eval(connection, RELEASE_LOCK_SCRIPT, ReturnType.INTEGER, 1, lockKey, token, notifier.getChannelBytes());
+            } else {
+                RedisScripts.eval(connection, RELEASE_LOCK_SCRIPT, ReturnType.INTEGER, 1, lockKey, token);
+            }
+        }
 
-                    retry = true;
+        protected CountDownLatch registerLockWaiter(byte[] lockKey) {
+            LockReleaseNotifier notifier = this.cacheMetadata.getLockReleaseNotifier();
+            return notifier != null ? notifier.register(lockKey) : null;
+        }
+
+        protected void unregisterLockWaiter(byte[] lockKey, CountDownLatch released) {
+            if (released != null) {
+                this.cacheMetadata.getLockReleaseNotifier().unregister(lockKey, released);
+            }
+        }
+
+        protected void awaitLockRelease(CountDownLatch released, long timeoutMillis) {
+            try {
+                LockReleaseNotifier.await(released, timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RedisSystemException("Interrupted while waiting for cache lock", e);
+            }
+        }
+
+        protected CustomRedisCache.RedisCacheMetadata getCacheMetadata() {
+            return this.cacheMetadata;
+        }
+    }
+
+    /**
+     * 不使用前缀时记录缓存key的索引，清空缓存时按索引删除
+     * <p>
+     * key按hash分到多个有序集合中，集群模式下分布在不同slot；成员的分数为过期时间点，
+     * 写入时顺带删除过期超过{@link #GRACE_MILLIS}的成员，集合的过期时间只延长不缩短
+     */
+    static final class KnownKeysIndex {
+        // 分桶数，修改后旧分桶中的key不会再被清空
+        static final int BUCKETS = 16;
+        // 成员过期后在索引中多保留的时间-毫秒，容忍各节点之间的时钟误差
+        static final long GRACE_MILLIS = 60000L;
+
+        /**
+         * index(分桶, 缓存key, 过期时间-毫秒，0表示不过期, 当前时间-毫秒)
+         */
+        static final String INDEX_FUNCTION_LUA = "local function index(bucket, member, ttl, now) "
+                + "redis.call('zremrangebyscore', bucket, '-inf', now - " + GRACE_MILLIS + "); "
+                + "local existed = redis.call('exists', bucket) == 1; "
+                + "if ttl > 0 then redis.call('zadd', bucket, now + ttl, member) else redis.call('zadd', bucket, '+inf', member) end; "
+                + "if ttl <= 0 then redis.call('persist', bucket) "
+                + "else local current = redis.call('pttl', bucket); "
+                + "if not existed or (current >= 0 and current < ttl + " + GRACE_MILLIS + ") then redis.call('pexpire', bucket, ttl + " + GRACE_MILLIS + ") end end "
+                + "end; ";
+
+        /**
+         * KEYS:分桶 ARGV[1]:当前时间-毫秒 ARGV[2..]:每三个一组，分桶在KEYS中的序号、缓存key、过期时间-毫秒，0表示不过期
+         */
+        static final String ADD_LUA = INDEX_FUNCTION_LUA
+                + "local now = tonumber(ARGV[1]); "
+                + "for i = 2, #ARGV, 3 do index(KEYS[tonumber(ARGV[i])], ARGV[i + 1], tonumber(ARGV[i + 2]), now) end; "
+                + "return 1";
+
+        private static final RedisScript<Object> ADD_SCRIPT = RedisScripts.of(ADD_LUA);
+        private static final byte[] FIRST_BUCKET = toBytes(1L);
+
+        private KnownKeysIndex() {
+        }
+
+        /**
+         * 单机模式所有分桶一次脚本写入；集群模式下分桶不在同一个slot，每个分桶执行一次。不能在pipeline中调用
+         *
+         * @param timeToLives 与keys一一对应，过期时间-毫秒，0表示不过期
+         */
+        static void add(RedisConnection connection, CustomRedisCache.RedisCacheMetadata metadata, List<byte[]> keys, List<Long> timeToLives) {
+            // 分桶 -> 缓存key和过期时间交替出现
+            Map<ByteArrayWrapper, List<byte[]>> buckets = new LinkedHashMap<ByteArrayWrapper, List<byte[]>>();
+            for (int i = 0; i < keys.size(); i++) {
+                ByteArrayWrapper bucket = new ByteArrayWrapper(metadata.getKnownKeysBucket(keys.get(i)));
+                List<byte[]> members = buckets.get(bucket);
+                if (members == null) {
+                    members = new ArrayList<byte[]>();
+                    buckets.put(bucket, members);
+                }
+                members.add(keys.get(i));
+                members.add(toBytes(timeToLives.get(i)));
+            }
+            byte[] now = toBytes(System.currentTimeMillis());
+            if (CustomRedisCache.isClusterConnection(connection)) {
+                for (Map.Entry<ByteArrayWrapper, List<byte[]>> bucket : buckets.entrySet()) {
+                    List<byte[]> keysAndArgs = new ArrayList<byte[]>(bucket.getValue().size() / 2 * 3 + 2);
+                    keysAndArgs.add(bucket.getKey().getArray());
+                    keysAndArgs.add(now);
+                    appendMembers(keysAndArgs, FIRST_BUCKET, bucket.getValue());
+                    RedisScripts.eval(connection, ADD_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs.toArray(new byte[keysAndArgs.size()][]));
                 }
-            } while (retry);
+                return;
+            }
+            List<byte[]> keysAndArgs = new ArrayList<byte[]>(buckets.size() + keys.size() * 3 + 1);
+            for (ByteArrayWrapper bucket : buckets.keySet()) {
+                keysAndArgs.add(bucket.getArray());
+            }
+            keysAndArgs.add(now);
+            int index = 0;
+            for (List<byte[]> members : buckets.values()) {
+                appendMembers(keysAndArgs, toBytes(++index), members);
+            }
+            RedisScripts.eval(connection, ADD_SCRIPT, ReturnType.INTEGER, buckets.size(), keysAndArgs.toArray(new byte[keysAndArgs.size()][]));
+        }
 
-            return foundLock;
+        private static void appendMembers(List<byte[]> keysAndArgs, byte[] bucketIndex, List<byte[]> members) {
+            for (int i = 0; i < members.size(); i += 2) {
+                keysAndArgs.add(bucketIndex);
+                keysAndArgs.add(members.get(i));
+                keysAndArgs.add(members.get(i + 1));
+            }
         }
 
-        protected void lock(RedisConnection connection) {
-            this.waitForLock(connection);
-            connection.set(this.cacheMetadata.getCacheLockKey(), "locked".getBytes(), Expiration.seconds(2), RedisStringCommands.SetOption.UPSERT);
+        static void remove(RedisConnection connection, CustomRedisCache.RedisCacheMetadata metadata, List<byte[]> keys) {
+            Map<ByteArrayWrapper, List<byte[]>> buckets = new LinkedHashMap<ByteArrayWrapper, List<byte[]>>();
+            for (byte[] key : keys) {
+                ByteArrayWrapper bucket = new ByteArrayWrapper(metadata.getKnownKeysBucket(key));
+                List<byte[]> members = buckets.get(bucket);
+                if (members == null) {
+                    members = new ArrayList<byte[]>();
+                    buckets.put(bucket, members);
+                }
+                members.add(key);
+            }
+            boolean pipeline = buckets.size() > 1 && !CustomRedisCache.isClusterConnection(connection) && !connection.isPipelined();
+            if (pipeline) {
+                connection.openPipeline();
+            }
+            try {
+                for (Map.Entry<ByteArrayWrapper, List<byte[]>> bucket : buckets.entrySet()) {
+                    connection.zRem(bucket.getKey().getArray(), bucket.getValue().toArray(new byte[bucket.getValue().size()][]));
+                }
+            } finally {
+                if (pipeline) {
+                    connection.closePipeline();
+                }
+            }
         }
 
-        protected void unlock(RedisConnection connection) {
-            connection.del(new byte[][]{this.cacheMetadata.getCacheLockKey()});
+        static byte[] toBytes(long value) {
+            return String.valueOf(value).getBytes(StandardCharsets.US_ASCII);
         }
     }
 
@@ -471,7 +2256,7 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
             this.keyBytes = element.getKeyBytes();
             this.accessor = accessor;
             this.lazyLoad = element.get() instanceof Callable;
-            this.valueBytes = this.lazyLoad ? null : accessor.convertToBytesIfNecessary(element.get());
+            this.valueBytes = this.lazyLoad ? null : accessor.convertToBytesIfNecessary(element.get(), element.getTimeToLive(), 0L);
         }
 
         @Override
@@ -479,9 +2264,16 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
             return this.keyBytes;
         }
 
+        public Object getStoreValue() {
+            return this.element.get();
+        }
+
+        /**
+         * 写入redis的存活时间，开启过期后继续使用旧值时包含宽限时间
+         */
         @Override
         public long getTimeToLive() {
-            return this.element.getTimeToLive();
+            return this.element.isEternal() ? this.element.getTimeToLive() : this.element.getTimeToLive() + this.accessor.getStaleGraceSeconds();
         }
 
         @Override
@@ -503,7 +2295,9 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
         public byte[] get() {
             if (this.lazyLoad && this.valueBytes == null) {
                 try {
-                    this.valueBytes = this.accessor.convertToBytesIfNecessary(((Callable) this.element.get()).call());
+                    long start = System.currentTimeMillis();
+                    Object value = ((Callable) this.element.get()).call();
+                    this.valueBytes = this.accessor.convertToBytesIfNecessary(value, this.element.getTimeToLive(), System.currentTimeMillis() - start);
                 } catch (Exception var2) {
                     throw var2 instanceof RuntimeException ? (RuntimeException) var2 : new RuntimeException(var2.getMessage(), var2);
                 }
@@ -513,32 +2307,301 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
         }
     }
 
+    /**
+     * 值的存储格式：不需要附加信息也不压缩时直接保存序列化结果；否则为 0x00 + 标志位 + 附加信息 + 内容，
+     * 附加信息为 写入时间(8) + 逻辑过期时间(8) + 加载耗时(4)，压缩时内容为 原始长度(4) + Deflate数据。
+     * json和jdk序列化结果不会以0x00开头，据此兼容旧格式
+     */
     static class CacheValueAccessor {
+        private static final byte FORMAT_MARKER = 0;
+        static final byte FLAG_HEADER = 1;
+        static final byte FLAG_COMPRESSED = 2;
+        private static final byte KNOWN_FLAGS = FLAG_HEADER | FLAG_COMPRESSED;
+        private static final int HEADER_LENGTH = 20;
+        private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+            @Override
+            protected Deflater initialValue() {
+                return new Deflater(Deflater.BEST_SPEED);
+            }
+        };
+        private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+            @Override
+            protected Inflater initialValue() {
+                return new Inflater();
+            }
+        };
         private final RedisSerializer valueSerializer;
+        private final boolean writeHeader;
+        private final long staleGraceSeconds;
+        private final int compressThreshold;
+        private final CompressionStats compressionStats = new CompressionStats();
 
         CacheValueAccessor(RedisSerializer valueRedisSerializer) {
+            this(valueRedisSerializer, false, 0L, 0);
+        }
+
+        /**
+         * @param writeHeader       是否保存附加信息
+         * @param staleGraceSeconds 逻辑过期后在redis中继续保留的时间-秒
+         * @param compressThreshold 序列化结果达到该字节数时压缩，0表示不压缩
+         */
+        CacheValueAccessor(RedisSerializer<?> valueRedisSerializer, boolean writeHeader, long staleGraceSeconds, int compressThreshold) {
             this.valueSerializer = valueRedisSerializer;
+            this.writeHeader = writeHeader;
+            this.staleGraceSeconds = staleGraceSeconds;
+            this.compressThreshold = compressThreshold;
+        }
+
+        long getStaleGraceSeconds() {
+            return this.staleGraceSeconds;
+        }
+
+        CompressionStats getCompressionStats() {
+            return this.compressionStats;
         }
 
         byte[] convertToBytesIfNecessary(Object value) {
+            return this.convertToBytesIfNecessary(value, 0L, 0L);
+        }
+
+        /**
+         * @param timeToLive 逻辑存活时间-秒，0表示不过期
+         * @param loadMillis 加载耗时-毫秒
+         */
+        byte[] convertToBytesIfNecessary(Object value, long timeToLive, long loadMillis) {
             if (value == null) {
                 return new byte[0];
-            } else {
-                return this.valueSerializer == null && value instanceof byte[] ? (byte[]) ((byte[]) value) : this.valueSerializer.serialize(value);
             }
+            byte[] bytes = this.valueSerializer == null && value instanceof byte[] ? (byte[]) ((byte[]) value) : this.valueSerializer.serialize(value);
+            byte[] compressed = this.compressThreshold > 0 && bytes.length >= this.compressThreshold ? this.compress(bytes) : null;
+            if (!this.writeHeader && compressed == null) {
+                return bytes;
+            }
+            byte[] payload = compressed != null ? compressed : bytes;
+            byte flags = (byte) ((this.writeHeader ? FLAG_HEADER : 0) | (compressed != null ? FLAG_COMPRESSED : 0));
+            ByteBuffer buffer = ByteBuffer.allocate(2 + (this.writeHeader ? HEADER_LENGTH : 0) + (compressed != null ? 4 : 0) + payload.length);
+            buffer.put(FORMAT_MARKER).put(flags);
+            if (this.writeHeader) {
+                long now = System.currentTimeMillis();
+                buffer.putLong(now).putLong(timeToLive > 0L ? now + timeToLive * 1000L : 0L).putInt((int) Math.min(loadMillis, Integer.MAX_VALUE));
+            }
+            if (compressed != null) {
+                buffer.putInt(bytes.length);
+            }
+            buffer.put(payload);
+            return buffer.array();
         }
 
         Object deserializeIfNecessary(byte[] value) {
-            return this.valueSerializer != null ? this.valueSerializer.deserialize(value) : value;
+            return this.read(value).getValue();
+        }
+
+        CustomRedisCache.StoredValue read(byte[] value) {
+            return this.read(value, null);
+        }
+
+        /**
+         * @param type 反序列化的目标类型，为null时按Object读取
+         */
+        CustomRedisCache.StoredValue read(byte[] value, Class<?> type) {
+            if (!isEnveloped(value)) {
+                return new CustomRedisCache.StoredValue(this.deserialize(value, 0, value.length, type), 0L, 0L, 0);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(value, 2, value.length - 2);
+            long writtenAt = 0L;
+            long expireAt = 0L;
+            int loadMillis = 0;
+            if ((value[1] & FLAG_HEADER) != 0) {
+                writtenAt = buffer.getLong();
+                expireAt = buffer.getLong();
+                loadMillis = buffer.getInt();
+            }
+            Object result;
+            if ((value[1] & FLAG_COMPRESSED) != 0) {
+                int length = buffer.getInt();
+                byte[] payload = this.decompress(value, buffer.position(), length);
+                result = this.deserialize(payload, 0, payload.length, type);
+            } else {
+                result = this.deserialize(value, buffer.position(), value.length - buffer.position(), type);
+            }
+            return new CustomRedisCache.StoredValue(result, writtenAt, expireAt, loadMillis);
+        }
+
+        /**
+         * @return 压缩后没有变小时返回null，按原样保存
+         */
+        private byte[] compress(byte[] bytes) {
+            long start = System.nanoTime();
+            Deflater deflater = DEFLATER.get();
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] buffer = new byte[bytes.length];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            boolean smaller = deflater.finished() && length < bytes.length;
+            this.compressionStats.recordCompress(bytes.length, smaller ? length : bytes.length, System.nanoTime() - start);
+            return smaller ? Arrays.copyOf(buffer, length) : null;
+        }
+
+        private byte[] decompress(byte[] value, int offset, int length) {
+            long start = System.nanoTime();
+            Inflater inflater = INFLATER.get();
+            inflater.reset();
+            inflater.setInput(value, offset, value.length - offset);
+            byte[] bytes = new byte[length];
+            try {
+                int read = 0;
+                while (read < length && !inflater.finished()) {
+                    int count = inflater.inflate(bytes, read, length - read);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += count;
+                }
+                if (read != length) {
+                    throw new SerializationException("Cannot decompress cache value: truncated data");
+                }
+            } catch (DataFormatException e) {
+                throw new SerializationException("Cannot decompress cache value", e);
+            }
+            this.compressionStats.recordDecompress(System.nanoTime() - start);
+            return bytes;
+        }
+
+        private Object deserialize(byte[] value, int offset, int length, Class<?> type) {
+            if (this.valueSerializer instanceof TypedRedisSerializer) {
+                // 直接从原数组读取，不复制payload
+                return ((TypedRedisSerializer<?>) this.valueSerializer).deserialize(value, offset, length, type);
+            }
+            byte[] payload = offset == 0 && length == value.length ? value : Arrays.copyOfRange(value, offset, offset + length);
+            return this.valueSerializer != null ? this.valueSerializer.deserialize(payload) : payload;
+        }
+
+        private static boolean isEnveloped(byte[] value) {
+            return value.length >= 2 && value[0] == FORMAT_MARKER && value[1] != 0 && (value[1] & ~KNOWN_FLAGS) == 0;
+        }
+    }
+
+    /**
+     * 从redis读到的值和附加信息，旧格式的值没有附加信息，时间均为0
+     */
+    static class StoredValue {
+        private final Object value;
+        private final long writtenAt;
+        private final long expireAt;
+        private final int loadMillis;
+
+        StoredValue(Object value, long writtenAt, long expireAt, int loadMillis) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.expireAt = expireAt;
+            this.loadMillis = loadMillis;
+        }
+
+        public Object getValue() {
+            return this.value;
+        }
+
+        public long getWrittenAt() {
+            return this.writtenAt;
+        }
+
+        public long getExpireAt() {
+            return this.expireAt;
+        }
+
+        public int getLoadMillis() {
+            return this.loadMillis;
+        }
+
+        /**
+         * 是否已过逻辑过期时间，过期的值只在开启宽限时间时作为旧值使用
+         */
+        public boolean isExpired(long now) {
+            return this.expireAt > 0L && now >= this.expireAt;
+        }
+    }
+
+    /**
+     * 回写缓冲区，同一个key只保留最后一次写入
+     */
+    static class WriteBehindBuffer {
+        private final ConcurrentMap<ByteArrayWrapper, CustomRedisCache.BinaryRedisCacheElement> pending = new ConcurrentHashMap<ByteArrayWrapper, CustomRedisCache.BinaryRedisCacheElement>();
+        // 写入Redis期间持有，删除key时等待正在进行的写入结束，避免删除后又被写回
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private final AtomicBoolean timerScheduled = new AtomicBoolean();
+        private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+        void add(CustomRedisCache.BinaryRedisCacheElement element) {
+            this.pending.put(new ByteArrayWrapper(element.getKeyBytes()), element);
+        }
+
+        CustomRedisCache.BinaryRedisCacheElement get(byte[] keyBytes) {
+            return this.pending.isEmpty() ? null : this.pending.get(new ByteArrayWrapper(keyBytes));
+        }
+
+        int size() {
+            return this.pending.size();
+        }
+
+        boolean isEmpty() {
+            return this.pending.isEmpty();
+        }
+
+        List<CustomRedisCache.BinaryRedisCacheElement> peek(int max) {
+            List<CustomRedisCache.BinaryRedisCacheElement> batch = new ArrayList<CustomRedisCache.BinaryRedisCacheElement>(Math.min(max, this.pending.size()));
+            Iterator<CustomRedisCache.BinaryRedisCacheElement> iterator = this.pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < max) {
+                batch.add(iterator.next());
+            }
+            return batch;
+        }
+
+        /**
+         * 移除已写入的数据，写入期间被再次put的key保留新值
+         */
+        List<byte[]> removeWritten(List<CustomRedisCache.BinaryRedisCacheElement> written) {
+            List<byte[]> keys = new ArrayList<byte[]>(written.size());
+            for (CustomRedisCache.BinaryRedisCacheElement element : written) {
+                this.pending.remove(new ByteArrayWrapper(element.getKeyBytes()), element);
+                keys.add(element.getKeyBytes());
+            }
+            return keys;
+        }
+
+        void discard(Collection<byte[]> keys) {
+            for (byte[] key : keys) {
+                this.pending.remove(new ByteArrayWrapper(key));
+            }
+            this.awaitFlush();
+        }
+
+        void discardAll() {
+            this.pending.clear();
+            this.awaitFlush();
+        }
+
+        private void awaitFlush() {
+            this.flushLock.lock();
+            this.flushLock.unlock();
         }
     }
 
     static class RedisCacheMetadata {
+        private static final byte[] LOAD_LOCK_SUFFIX = (new StringRedisSerializer()).serialize("~lock");
         private final String cacheName;
         private final byte[] keyPrefix;
         private final byte[] setOfKnownKeys;
+        private final byte[][] knownKeysBuckets;
         private final byte[] cacheLockName;
-        private long defaultExpiration = 0L;
+        private ExpirationPolicy expirationPolicy = new ExpirationPolicy(0L);
+        private long loadLockLeaseMillis = 2000L;
+        private LockReleaseNotifier lockReleaseNotifier;
+        private ExtendRedisCachePrefix generationalPrefix;
+        private final CacheMetrics metrics = new CacheMetrics();
 
         public RedisCacheMetadata(String cacheName, byte[] keyPrefix) {
             Assert.hasText(cacheName, "CacheName must not be null or empty!");
@@ -546,6 +2609,10 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
             this.keyPrefix = keyPrefix;
             StringRedisSerializer stringSerializer = new StringRedisSerializer();
             this.setOfKnownKeys = this.usesKeyPrefix() ? new byte[0] : stringSerializer.serialize(cacheName + "~keys");
+            this.knownKeysBuckets = new byte[this.usesKeyPrefix() ? 0 : CustomRedisCache.KnownKeysIndex.BUCKETS][];
+            for (int i = 0; i < this.knownKeysBuckets.length; i++) {
+                this.knownKeysBuckets[i] = stringSerializer.serialize(cacheName + "~keys~" + i);
+            }
             this.cacheLockName = stringSerializer.serialize(cacheName + "~lock");
         }
 
@@ -554,13 +2621,63 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
         }
 
         public byte[] getKeyPrefix() {
-            return this.keyPrefix;
+            return this.generationalPrefix != null ? this.generationalPrefix.prefix(this.cacheName) : this.keyPrefix;
+        }
+
+        public boolean isGenerational() {
+            return this.generationalPrefix != null;
+        }
+
+        /**
+         * 按Redis中当前版本号生成的前缀
+         */
+        public byte[] getCurrentKeyPrefix() {
+            return this.generationalPrefix.currentPrefix(this.cacheName);
+        }
+
+        /**
+         * 本地缓存的版本号
+         */
+        public long getGeneration() {
+            return this.generationalPrefix.getGeneration(this.cacheName);
+        }
+
+        /**
+         * 指定版本号的前缀
+         */
+        public byte[] getKeyPrefix(long generation) {
+            return this.generationalPrefix.prefix(this.cacheName, generation);
+        }
+
+        /**
+         * @return Redis中加一后的版本号
+         */
+        public long nextGeneration() {
+            return this.generationalPrefix.nextGeneration(this.cacheName);
+        }
+
+        public void setGenerationalPrefix(ExtendRedisCachePrefix generationalPrefix) {
+            this.generationalPrefix = generationalPrefix;
         }
 
+        /**
+         * 旧版本记录所有key的单个集合，清空缓存时一并删除
+         */
         public byte[] getSetOfKnownKeysKey() {
             return this.setOfKnownKeys;
         }
 
+        /**
+         * key所在的索引分桶：[缓存名]~keys~[序号]
+         */
+        public byte[] getKnownKeysBucket(byte[] keyBytes) {
+            return this.knownKeysBuckets[(Arrays.hashCode(keyBytes) & Integer.MAX_VALUE) % this.knownKeysBuckets.length];
+        }
+
+        public byte[][] getKnownKeysBuckets() {
+            return this.knownKeysBuckets;
+        }
+
         public byte[] getCacheLockKey() {
             return this.cacheLockName;
         }
@@ -569,12 +2686,56 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
             return this.cacheName;
         }
 
+        public CacheMetrics getMetrics() {
+            return this.metrics;
+        }
+
+        /**
+         * 单个key加载时使用的锁：[key]~lock
+         */
+        public byte[] getLoadLockKey(byte[] keyBytes) {
+            byte[] lockKey = Arrays.copyOf(keyBytes, keyBytes.length + LOAD_LOCK_SUFFIX.length);
+            System.arraycopy(LOAD_LOCK_SUFFIX, 0, lockKey, keyBytes.length, LOAD_LOCK_SUFFIX.length);
+            return lockKey;
+        }
+
+        public void setLoadLockLeaseMillis(long loadLockLeaseMillis) {
+            this.loadLockLeaseMillis = loadLockLeaseMillis;
+        }
+
+        public long getLoadLockLeaseMillis() {
+            return this.loadLockLeaseMillis;
+        }
+
+        public void setLockReleaseNotifier(LockReleaseNotifier lockReleaseNotifier) {
+            this.lockReleaseNotifier = lockReleaseNotifier;
+        }
+
+        public LockReleaseNotifier getLockReleaseNotifier() {
+            return this.lockReleaseNotifier;
+        }
+
         public void setDefaultExpiration(long seconds) {
-            this.defaultExpiration = seconds;
+            this.expirationPolicy = new ExpirationPolicy(seconds);
         }
 
         public long getDefaultExpiration() {
-            return this.defaultExpiration;
+            return this.expirationPolicy.getExpiration();
+        }
+
+        public void setExpirationPolicy(ExpirationPolicy expirationPolicy) {
+            this.expirationPolicy = expirationPolicy;
+        }
+
+        public ExpirationPolicy getExpirationPolicy() {
+            return this.expirationPolicy;
+        }
+
+        /**
+         * 本次写入使用的过期时间，开启随机浮动时每次不同
+         */
+        public long nextTimeToLive() {
+            return this.expirationPolicy.nextTimeToLive();
         }
     }
 
@@ -587,7 +2748,15 @@ public class CustomRedisCache extends AbstractValueAdaptingCache {
 
         @Override
         public Object call() throws Exception {
-            return CustomRedisCache.this.toStoreValue(this.valueLoader.call());
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object value = CustomRedisCache.this.toStoreValue(this.valueLoader.call());
+                success = true;
+                return value;
+            } finally {
+                CustomRedisCache.this.cacheMetadata.getMetrics().recordLoad(System.nanoTime() - start, success);
+            }
         }
     }
 }
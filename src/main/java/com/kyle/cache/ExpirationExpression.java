@@ -0,0 +1,116 @@
+package com.kyle.cache;
+
+/**
+ * 缓存名中过期时间的四则运算表达式，例如 users#60*60*24
+ * <p>
+ * 支持 + - * / % 、括号和小数，按double计算后取整，与原先用脚本引擎计算的结果一致
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class ExpirationExpression {
+    private final String expression;
+    private int position;
+
+    private ExpirationExpression(String expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * @param expression 过期时间表达式
+     * @return 过期时间-秒
+     * @throws IllegalArgumentException 表达式不合法
+     */
+    public static long parse(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Expiration expression must not be null");
+        }
+        ExpirationExpression parser = new ExpirationExpression(expression);
+        double value = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.position < expression.length()) {
+            throw parser.error("Unexpected character '" + expression.charAt(parser.position) + "'");
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw parser.error("Result is not a number");
+        }
+        return (long) value;
+    }
+
+    private double parseExpression() {
+        double value = parseTerm();
+        while (true) {
+            if (accept('+')) {
+                value += parseTerm();
+            } else if (accept('-')) {
+                value -= parseTerm();
+            } else {
+                return value;
+            }
+        }
+    }
+
+    private double parseTerm() {
+        double value = parseFactor();
+        while (true) {
+            if (accept('*')) {
+                value *= parseFactor();
+            } else if (accept('/')) {
+                value /= parseFactor();
+            } else if (accept('%')) {
+                value %= parseFactor();
+            } else {
+                return value;
+            }
+        }
+    }
+
+    private double parseFactor() {
+        if (accept('-')) {
+            return -parseFactor();
+        }
+        if (accept('+')) {
+            return parseFactor();
+        }
+        if (accept('(')) {
+            double value = parseExpression();
+            if (!accept(')')) {
+                throw error("Missing ')'");
+            }
+            return value;
+        }
+        skipWhitespace();
+        int start = position;
+        while (position < expression.length() && (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+            position++;
+        }
+        if (start == position) {
+            throw error(position < expression.length() ? "Unexpected character '" + expression.charAt(position) + "'" : "Unexpected end");
+        }
+        try {
+            return Double.parseDouble(expression.substring(start, position));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + expression.substring(start, position) + "'");
+        }
+    }
+
+    private boolean accept(char c) {
+        skipWhitespace();
+        if (position < expression.length() && expression.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(String.format("%s at position %d of expiration '%s'", message, position, expression));
+    }
+}
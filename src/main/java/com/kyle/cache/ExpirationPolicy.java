@@ -0,0 +1,61 @@
+package com.kyle.cache;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 缓存的过期策略，创建缓存时确定，之后不再改变
+ * <p>
+ * jitter大于0时每次写入的过期时间在 expiration*(1±jitter) 之间随机取值，避免同一批写入的key在同一时刻过期
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class ExpirationPolicy {
+    //过期时间-秒，0表示不过期
+    private final long expiration;
+    //过期时间随机浮动比例，0.1表示±10%
+    private final double jitter;
+
+    public ExpirationPolicy(long expiration) {
+        this(expiration, 0D);
+    }
+
+    public ExpirationPolicy(long expiration, double jitter) {
+        Assert.isTrue(jitter >= 0D && jitter < 1D, "Expiration jitter must be in [0, 1)");
+        this.expiration = Math.max(expiration, 0L);
+        this.jitter = jitter;
+    }
+
+    public long getExpiration() {
+        return expiration;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public boolean isEternal() {
+        return expiration <= 0L;
+    }
+
+    /**
+     * 本次写入使用的过期时间
+     *
+     * @return 过期时间-秒，0表示不过期
+     */
+    public long nextTimeToLive() {
+        long delta = (long) (expiration * jitter);
+        if (expiration <= 0L || delta <= 0L) {
+            return expiration;
+        }
+        return Math.max(1L, expiration + ThreadLocalRandom.current().nextLong(-delta, delta + 1));
+    }
+
+    @Override
+    public String toString() {
+        return jitter > 0D ? String.format("%ds±%.0f%%", expiration, jitter * 100) : expiration + "s";
+    }
+}
@@ -2,18 +2,22 @@ package com.kyle.cache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cache.Cache;
-import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.cache.RedisCachePrefix;
 import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.util.StringUtils;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
@@ -22,11 +26,9 @@ import java.util.regex.Pattern;
  * @author carroll
  * @Date 2017-05-11 18:27
  **/
-public class ExtendRedisCacheManager extends RedisCacheManager {
+public class ExtendRedisCacheManager extends RedisCacheManager implements DisposableBean {
     private static Logger log = LoggerFactory.getLogger(RedisUtil.class);
 
-    private static final ScriptEngine SCRIPT_ENGINE = new ScriptEngineManager().getEngineByName("JavaScript");
-
     private static final Pattern PATTERN = Pattern.compile("[+\\-*/%]");
 
     private char separator = '#';
@@ -35,6 +37,30 @@ public class ExtendRedisCacheManager extends RedisCacheManager {
 
     private long defaultExpiration = 0;
 
+    //默认的过期时间随机浮动比例
+    private double expirationJitter = 0;
+
+    private Map<String, CacheSettings> cacheSettings = Collections.emptyMap();
+
+    private NearCacheInvalidator nearCacheInvalidator;
+
+    private LockReleaseNotifier lockReleaseNotifier;
+
+    private CacheSerializers cacheSerializers;
+
+    private CacheAsyncExecutor asyncExecutor;
+
+    //缓存值的默认序列化方式，缓存单独配置了serializer时以单独配置为准
+    private String defaultSerializer;
+
+    private final ConcurrentMap<String, NearCache> nearCaches = new ConcurrentHashMap<>();
+
+    // 按调用方传入的原始缓存名（含过期时间）保存已解析的缓存，解析一次后只查一次map
+    private final ConcurrentMap<String, Cache> resolvedCaches = new ConcurrentHashMap<>();
+
+    // 创建的CustomRedisCache，用于读取统计；事务装饰后的缓存无法取回原始对象
+    private final ConcurrentMap<String, CustomRedisCache> customCaches = new ConcurrentHashMap<>();
+
     public ExtendRedisCacheManager(RedisOperations redisOperations) {
         this(redisOperations, Collections.<String>emptyList());
     }
@@ -45,16 +71,26 @@ public class ExtendRedisCacheManager extends RedisCacheManager {
 
     @Override
     public Cache getCache(String name) {
+        Cache cache = resolvedCaches.get(name);
+        return cache != null ? cache : resolveCache(name);
+    }
+
+    /**
+     * 解析缓存名中的过期时间并创建缓存，同一个缓存名只解析一次
+     *
+     * @param name
+     * @return
+     */
+    private synchronized Cache resolveCache(String name) {
+        Cache resolved = resolvedCaches.get(name);
+        if (resolved != null) {
+            return resolved;
+        }
         log.debug("start getCache");
-        Long expiration = defaultExpiration;
         String cacheName = defaultCacheName;
         int index = name.lastIndexOf(getSeparator());
         if(index > -1){
-            expiration = getExpiration(name, index);
-            if (expiration == null || expiration < 0) {
-                expiration = defaultExpiration;
-            }
-            super.setDefaultExpiration(expiration);
+            // 过期时间在创建缓存时由getExpirationPolicy从缓存名解析
             cacheName = name.substring(0, index);
             if(StringUtils.isEmpty(cacheName)||StringUtils.isEmpty(cacheName.trim())){
                 cacheName = defaultCacheName;
@@ -64,17 +100,136 @@ public class ExtendRedisCacheManager extends RedisCacheManager {
             cacheName = name;
         }
         // try to get cache by name
-        RedisCache cache = (RedisCache) super.getCache(cacheName);
-        log.debug("end getCache");
+        Cache cache = super.getCache(cacheName);
         if (cache != null) {
-            return cache;
+            resolvedCaches.put(name, cache);
         }
+        log.debug("end getCache");
+        return cache;
+    }
 
-        CustomRedisCache redisCache = new CustomRedisCache(cacheName, (isUsePrefix() ? getCachePrefix().prefix(cacheName) : null), getRedisOperations(), expiration);
-        log.debug("end getCache2");
-        return redisCache;
+    @Override
+    protected Cache getMissingCache(String name) {
+        // 动态创建的缓存统一使用CustomRedisCache
+        NearCache nearCache = getNearCache(name);
+        CustomRedisCache cache = new CustomRedisCache(name, (isUsePrefix() ? getCachePrefix().prefix(name) : null), getRedisOperations(), getExpirationPolicy(name),
+                false, getCacheSettings(name), nearCache, nearCache == null ? null : nearCacheInvalidator, getValueSerializer(name));
+        cache.setLockReleaseNotifier(lockReleaseNotifier);
+        cache.setAsyncExecutor(asyncExecutor);
+        if (isUsePrefix() && getCachePrefix() instanceof ExtendRedisCachePrefix) {
+            cache.setGenerationalPrefix((ExtendRedisCachePrefix) getCachePrefix());
+        }
+        customCaches.put(name, cache);
+        return cache;
+    }
+
+    private NearCache getNearCache(final String cacheName) {
+        final CacheSettings settings = getCacheSettings(cacheName);
+        if (settings == null || !settings.isNearCacheEnable()) {
+            return null;
+        }
+        return nearCaches.computeIfAbsent(cacheName, name -> {
+            NearCache nearCache = new NearCache(name, settings.getNearCacheMaxSize(), settings.getNearCacheExpireSeconds());
+            if (nearCacheInvalidator != null) {
+                nearCacheInvalidator.register(nearCache);
+            }
+            return nearCache;
+        });
+    }
+
+    private RedisSerializer<?> getValueSerializer(String cacheName) {
+        if (cacheSerializers == null) {
+            return null;
+        }
+        CacheSettings settings = getCacheSettings(cacheName);
+        String serializer = settings != null && !StringUtils.isEmpty(settings.getSerializer()) ? settings.getSerializer() : defaultSerializer;
+        return cacheSerializers.get(serializer);
+    }
+
+    @Override
+    protected long computeExpiration(String name) {
+        return getExpirationPolicy(name).getExpiration();
     }
 
+    /**
+     * 缓存的过期策略：单独配置的expiration优先，其次是缓存名中#后面的过期时间，最后是默认过期时间
+     *
+     * @param cacheName
+     * @return
+     */
+    public ExpirationPolicy getExpirationPolicy(String cacheName) {
+        CacheSettings settings = getCacheSettings(cacheName);
+        long expiration = defaultExpiration;
+        if (settings != null && settings.getExpiration() != null && settings.getExpiration() >= 0) {
+            expiration = settings.getExpiration();
+        } else {
+            int index = cacheName.lastIndexOf(getSeparator());
+            Long parsed = index > -1 ? getExpiration(cacheName, index) : null;
+            if (parsed != null && parsed >= 0) {
+                expiration = parsed;
+            }
+        }
+        double jitter = settings != null && settings.getExpirationJitter() != null ? settings.getExpirationJitter() : expirationJitter;
+        return new ExpirationPolicy(expiration, jitter);
+    }
+
+    /**
+     * 获取缓存的单独配置，缓存名中的过期时间部分不参与匹配
+     *
+     * @param cacheName
+     * @return
+     */
+    public CacheSettings getCacheSettings(String cacheName) {
+        int index = cacheName.lastIndexOf(getSeparator());
+        return cacheSettings.get(index > -1 ? cacheName.substring(0, index) : cacheName);
+    }
+
+    /**
+     * 单个缓存的统计
+     *
+     * @param cacheName 创建时的缓存名
+     * @return 缓存不存在时返回null
+     */
+    public CacheMetricsSnapshot getMetricsSnapshot(String cacheName) {
+        CustomRedisCache cache = customCaches.get(cacheName);
+        return cache != null ? cache.getMetricsSnapshot() : null;
+    }
+
+    /**
+     * 有统计的缓存名
+     *
+     * @return
+     */
+    public Set<String> getMetricsCacheNames() {
+        return new TreeSet<>(customCaches.keySet());
+    }
+
+    /**
+     * 所有已创建缓存的统计
+     *
+     * @return key为缓存名
+     */
+    public Map<String, CacheMetricsSnapshot> getMetricsSnapshots() {
+        Map<String, CacheMetricsSnapshot> snapshots = new TreeMap<>();
+        for (CustomRedisCache cache : customCaches.values()) {
+            snapshots.put(cache.getName(), cache.getMetricsSnapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * 关闭前把开启回写的缓存中还未写入的数据写入Redis
+     */
+    @Override
+    public void destroy() {
+        for (CustomRedisCache cache : customCaches.values()) {
+            try {
+                cache.flushWriteBehind();
+            } catch (RuntimeException ex) {
+                log.error(String.format("Failed to flush %d pending writes of cache '%s'", cache.getWriteBehindPending(), cache.getName()), ex);
+            }
+        }
+    }
 
     public char getSeparator() {
         return separator;
@@ -95,14 +250,12 @@ public class ExtendRedisCacheManager extends RedisCacheManager {
         try {
             // calculate expiration, support arithmetic expressions.
             if (PATTERN.matcher(expirationAsString).find()) {
-                expiration = (long) Double.parseDouble(SCRIPT_ENGINE.eval(expirationAsString).toString());
+                expiration = ExpirationExpression.parse(expirationAsString);
             }else{
                 expiration = Long.parseLong(expirationAsString);
             }
-        } catch (NumberFormatException ex) {
+        } catch (IllegalArgumentException ex) {
             log.error(String.format("Cannnot separate expiration time from cache: '%s'", name), ex);
-        } catch (ScriptException e) {
-            log.error(String.format("Cannnot separate expiration time from cache: '%s'", name), e);
         }
 
         return expiration;
@@ -124,6 +277,34 @@ public class ExtendRedisCacheManager extends RedisCacheManager {
         this.defaultCacheName = defaultCacheName;
     }
 
+    public void setCacheSettings(Map<String, CacheSettings> cacheSettings) {
+        this.cacheSettings = cacheSettings == null ? Collections.<String, CacheSettings>emptyMap() : cacheSettings;
+    }
+
+    public void setNearCacheInvalidator(NearCacheInvalidator nearCacheInvalidator) {
+        this.nearCacheInvalidator = nearCacheInvalidator;
+    }
+
+    public void setLockReleaseNotifier(LockReleaseNotifier lockReleaseNotifier) {
+        this.lockReleaseNotifier = lockReleaseNotifier;
+    }
+
+    public void setCacheSerializers(CacheSerializers cacheSerializers) {
+        this.cacheSerializers = cacheSerializers;
+    }
+
+    public void setAsyncExecutor(CacheAsyncExecutor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public void setDefaultSerializer(String defaultSerializer) {
+        this.defaultSerializer = defaultSerializer;
+    }
+
+    public void setExpirationJitter(double expirationJitter) {
+        this.expirationJitter = expirationJitter;
+    }
+
     public long getDefaultExpiration() {
         return defaultExpiration;
     }
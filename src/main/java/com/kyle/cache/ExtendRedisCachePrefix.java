@@ -4,15 +4,21 @@ import org.springframework.data.redis.cache.RedisCachePrefix;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * @author: carroll
  * @date 2019/3/5
  * Copyright @https://github.com/carroll0911. 
  */
 public class ExtendRedisCachePrefix implements RedisCachePrefix {
-    private final RedisSerializer serializer;
+    private final RedisSerializer<String> serializer;
     private final String delimiter;
     private final String defaultCacheName;
+    // 不为null时前缀中带上缓存的版本号：[defaultCacheName]:[cacheName]:g[版本号]:
+    private CacheGenerations generations;
+    private final ConcurrentMap<String, GenerationPrefix> generationPrefixes = new ConcurrentHashMap<>();
 
     public ExtendRedisCachePrefix(String defaultCacheName) {
         this(":", defaultCacheName);
@@ -26,6 +32,82 @@ public class ExtendRedisCachePrefix implements RedisCachePrefix {
 
     @Override
     public byte[] prefix(String cacheName) {
-        return this.serializer.serialize(String.format("%s%s%s%s", defaultCacheName, delimiter, cacheName, delimiter));
+        if (generations == null) {
+            return this.serializer.serialize(basePrefix(cacheName));
+        }
+        long generation = generations.get(getGenerationName(cacheName));
+        GenerationPrefix prefix = generationPrefixes.get(cacheName);
+        if (prefix == null || prefix.generation != generation) {
+            prefix = new GenerationPrefix(generation, prefix(cacheName, generation));
+            generationPrefixes.put(cacheName, prefix);
+        }
+        return prefix.prefix;
+    }
+
+    /**
+     * 指定版本号的前缀
+     *
+     * @param cacheName
+     * @param generation
+     * @return
+     */
+    public byte[] prefix(String cacheName, long generation) {
+        return this.serializer.serialize(String.format("%sg%d%s", basePrefix(cacheName), generation, delimiter));
+    }
+
+    /**
+     * 从 Redis 读取当前版本号后的前缀，不使用本地缓存的版本号
+     *
+     * @param cacheName
+     * @return
+     */
+    public byte[] currentPrefix(String cacheName) {
+        return prefix(cacheName, generations.load(getGenerationName(cacheName)));
+    }
+
+    public boolean isGenerational() {
+        return generations != null;
+    }
+
+    /**
+     * 缓存的当前版本号
+     *
+     * @param cacheName
+     * @return
+     */
+    public long getGeneration(String cacheName) {
+        return generations.get(getGenerationName(cacheName));
+    }
+
+    /**
+     * 切换到新的版本号，旧版本的key不再被访问
+     *
+     * @param cacheName
+     * @return 新的版本号
+     */
+    public long nextGeneration(String cacheName) {
+        return generations.increment(getGenerationName(cacheName));
+    }
+
+    public void setGenerations(CacheGenerations generations) {
+        this.generations = generations;
+    }
+
+    private String basePrefix(String cacheName) {
+        return String.format("%s%s%s%s", defaultCacheName, delimiter, cacheName, delimiter);
+    }
+
+    private String getGenerationName(String cacheName) {
+        return defaultCacheName + delimiter + cacheName;
+    }
+
+    private static class GenerationPrefix {
+        private final long generation;
+        private final byte[] prefix;
+
+        GenerationPrefix(long generation, byte[] prefix) {
+            this.generation = generation;
+            this.prefix = prefix;
+        }
     }
 }
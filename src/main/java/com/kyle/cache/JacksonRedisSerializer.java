@@ -0,0 +1,160 @@
+package com.kyle.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 缓存值的Jackson序列化，写出的格式与Jackson2JsonRedisSerializer(Object.class)相同
+ * <p>
+ * 每个类型的ObjectWriter和ObjectReader只解析一次，序列化时复用线程内的输出缓冲区；
+ * 读取时给出目标类型的直接按该类型绑定，例如数字按声明的Long读取而不是先读成Integer
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class JacksonRedisSerializer implements TypedRedisSerializer<Object> {
+    // 缓冲区超过该大小时用完即丢弃，避免线程长期持有大数组
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private static final ThreadLocal<BufferOutputStream> OUTPUT = new ThreadLocal<BufferOutputStream>() {
+        @Override
+        protected BufferOutputStream initialValue() {
+            return new BufferOutputStream();
+        }
+    };
+
+    private final ObjectReader reader;
+    private final ClassValue<ObjectWriter> writers;
+    private final ClassValue<ObjectReader> readers;
+
+    public JacksonRedisSerializer(final ObjectMapper objectMapper) {
+        Assert.notNull(objectMapper, "ObjectMapper must not be null!");
+        this.reader = objectMapper.readerFor(Object.class);
+        this.writers = new ClassValue<ObjectWriter>() {
+            @Override
+            protected ObjectWriter computeValue(Class<?> type) {
+                return objectMapper.writerFor(type);
+            }
+        };
+        this.readers = new ClassValue<ObjectReader>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return objectMapper.readerFor(type);
+            }
+        };
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        BufferOutputStream output = OUTPUT.get();
+        output.reset();
+        try {
+            writers.get(value.getClass()).writeValue(output, value);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not write JSON: " + e.getMessage(), e);
+        } finally {
+            output.release();
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return deserialize(bytes, 0, bytes.length, null);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes, int offset, int length, Class<?> type) throws SerializationException {
+        if (length == 0) {
+            return null;
+        }
+        if (isTypedReadable(type)) {
+            try {
+                return readers.get(type).readValue(bytes, offset, length);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                // 声明类型与写入时的实际类型不一致（如按接口读取final类的值）时，类型信息对不上，按Object重新读取
+            } catch (IOException e) {
+                throw new SerializationException("Could not read JSON: " + e.getMessage(), e);
+            }
+        }
+        try {
+            return reader.readValue(bytes, offset, length);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入时按实际类型决定是否带类型信息，只有声明类型与实际类型的判断一致时才能直接按声明类型读取：
+     * final类和集合、具体类可以，Object、Number这类实际值常是final类的类型按Object读取
+     */
+    private static boolean isTypedReadable(Class<?> type) {
+        if (type == null || type == Object.class || type.isPrimitive()) {
+            return false;
+        }
+        int modifiers = type.getModifiers();
+        if (Modifier.isFinal(modifiers) || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return true;
+        }
+        return !type.isInterface() && !Modifier.isAbstract(modifiers);
+    }
+
+    /**
+     * 可复用的输出缓冲区
+     */
+    private static final class BufferOutputStream extends OutputStream {
+        private byte[] buffer = new byte[4096];
+        private int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        void release() {
+            if (buffer.length > MAX_RETAINED_BUFFER) {
+                buffer = new byte[4096];
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+
+        private void ensure(int length) {
+            if (count + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+    }
+}
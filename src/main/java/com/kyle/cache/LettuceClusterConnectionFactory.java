@@ -0,0 +1,180 @@
+package com.kyle.cache;
+
+import com.lambdaworks.redis.RedisURI;
+import com.lambdaworks.redis.api.StatefulConnection;
+import com.lambdaworks.redis.cluster.RedisClusterClient;
+import com.lambdaworks.redis.cluster.api.StatefulRedisClusterConnection;
+import com.lambdaworks.redis.codec.ByteArrayCodec;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.ExceptionTranslationStrategy;
+import org.springframework.data.redis.PassThroughExceptionTranslationStrategy;
+import org.springframework.data.redis.connection.ClusterCommandExecutor;
+import org.springframework.data.redis.connection.ClusterNodeResourceProvider;
+import org.springframework.data.redis.connection.ClusterTopology;
+import org.springframework.data.redis.connection.ClusterTopologyProvider;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceClusterConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConverters;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lettuce集群连接工厂
+ * <p>
+ * spring-data-redis 1.8 的 LettuceConnectionFactory 在集群模式下每个RedisConnection都会新建一个集群连接，
+ * 这里所有RedisConnection共用一个多路复用的集群连接，关闭RedisConnection时不关闭共享连接。
+ * 共享连接上不能执行事务和阻塞命令，缓存在集群模式下不使用这两类命令
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class LettuceClusterConnectionFactory implements RedisConnectionFactory, InitializingBean, DisposableBean {
+    private static final ExceptionTranslationStrategy EXCEPTION_TRANSLATION = new PassThroughExceptionTranslationStrategy(
+            LettuceConverters.exceptionConverter());
+
+    private final RedisClusterConfiguration clusterConfiguration;
+    private String password;
+    //命令超时时间-毫秒
+    private long timeout = 60000L;
+
+    private RedisClusterClient client;
+    private StatefulRedisClusterConnection<byte[], byte[]> sharedConnection;
+    private StatefulRedisClusterConnection<byte[], byte[]> unclosableConnection;
+    private ClusterCommandExecutor clusterCommandExecutor;
+
+    public LettuceClusterConnectionFactory(RedisClusterConfiguration clusterConfiguration) {
+        this.clusterConfiguration = clusterConfiguration;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<RedisURI> uris = new ArrayList<RedisURI>();
+        for (RedisNode node : clusterConfiguration.getClusterNodes()) {
+            RedisURI uri = RedisURI.create(node.getHost(), node.getPort());
+            if (password != null && !password.isEmpty()) {
+                uri.setPassword(password);
+            }
+            uri.setTimeout(timeout);
+            uris.add(uri);
+        }
+        this.client = RedisClusterClient.create(uris);
+        this.client.setDefaultTimeout(timeout, TimeUnit.MILLISECONDS);
+        this.sharedConnection = client.connect(ByteArrayCodec.INSTANCE);
+        this.unclosableConnection = unclosable(sharedConnection);
+        this.clusterCommandExecutor = new ClusterCommandExecutor(new ClusterTopologyProvider() {
+            @Override
+            public ClusterTopology getTopology() {
+                return new ClusterTopology(new LinkedHashSet<RedisClusterNode>(LettuceConverters.partitionsToClusterNodes(client.getPartitions())));
+            }
+        }, new ClusterNodeResourceProvider() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <S> S getResourceForSpecificNode(RedisClusterNode node) {
+                return (S) sharedConnection.getConnection(node.getHost(), node.getPort()).sync();
+            }
+
+            @Override
+            public void returnResourceForSpecificNode(RedisClusterNode node, Object resource) {
+                // 节点连接由共享连接管理
+            }
+        }, EXCEPTION_TRANSLATION);
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return getClusterConnection();
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return new SharedClusterConnection(client, clusterCommandExecutor, unclosableConnection);
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return true;
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        throw new InvalidDataAccessApiUsageException("Sentinel is not supported in cluster mode");
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return EXCEPTION_TRANSLATION.translate(ex);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (clusterCommandExecutor != null) {
+            clusterCommandExecutor.destroy();
+        }
+        if (sharedConnection != null) {
+            sharedConnection.close();
+        }
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * RedisConnection关闭时会关闭自己的连接，共享连接需要忽略close
+     */
+    @SuppressWarnings("unchecked")
+    private static StatefulRedisClusterConnection<byte[], byte[]> unclosable(final StatefulRedisClusterConnection<byte[], byte[]> connection) {
+        return (StatefulRedisClusterConnection<byte[], byte[]>) Proxy.newProxyInstance(LettuceClusterConnectionFactory.class.getClassLoader(),
+                new Class<?>[]{StatefulRedisClusterConnection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("close".equals(method.getName()) && method.getParameterTypes().length == 0) {
+                            return null;
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    static class SharedClusterConnection extends LettuceClusterConnection {
+        private final StatefulRedisClusterConnection<byte[], byte[]> connection;
+
+        SharedClusterConnection(RedisClusterClient client, ClusterCommandExecutor executor, StatefulRedisClusterConnection<byte[], byte[]> connection) {
+            super(client, executor);
+            this.connection = connection;
+        }
+
+        @Override
+        protected StatefulConnection<byte[], byte[]> doGetAsyncDedicatedConnection() {
+            return this.connection;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.kyle.cache;
+
+import com.lambdaworks.redis.KeyScanCursor;
+import com.lambdaworks.redis.RedisFuture;
+import com.lambdaworks.redis.ScanArgs;
+import com.lambdaworks.redis.ScanCursor;
+import com.lambdaworks.redis.ScriptOutputType;
+import com.lambdaworks.redis.cluster.api.StatefulRedisClusterConnection;
+import com.lambdaworks.redis.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import com.lambdaworks.redis.cluster.api.async.RedisClusterAsyncCommands;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConverters;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lettuce集群连接的批量执行工具
+ * <p>
+ * spring-data-redis 的Lettuce集群连接不支持pipeline，多key命令要求在同一个slot。这里直接使用共享的Lettuce异步连接，
+ * 一批命令全部发出后再统一等待结果，命令按key所在slot路由；MGET/DEL由Lettuce按slot拆分后合并结果。
+ * 按前缀删除时在每个master节点上SCAN，按slot分组后用脚本UNLINK。方法签名中不出现Lettuce的类型，
+ * 只有 {@link RedisClusterSupport#supportsLettuceExecution(RedisConnection)} 为true时才会加载此类
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+final class LettuceClusterSupport {
+
+    private LettuceClusterSupport() {
+    }
+
+    static boolean isLettuceCluster(RedisConnection connection) {
+        return connection.getNativeConnection() instanceof RedisAdvancedClusterAsyncCommands;
+    }
+
+    /**
+     * 批量读取，返回值与key的顺序一致
+     */
+    static List<byte[]> mGet(RedisConnection connection, List<byte[]> keys) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        return await(commands, commands.mget(keys.toArray(new byte[keys.size()][])));
+    }
+
+    static void del(RedisConnection connection, List<byte[]> keys) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        await(commands, commands.del(keys.toArray(new byte[keys.size()][])));
+    }
+
+    /**
+     * 批量写入：值为空时删除，过期时间小于等于0时不过期
+     *
+     * @param timeToLives 过期时间-秒
+     */
+    static void write(RedisConnection connection, List<byte[]> keys, List<byte[]> values, List<Long> timeToLives) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        List<RedisFuture<?>> futures = new ArrayList<RedisFuture<?>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            byte[] value = values.get(i);
+            if (value.length == 0) {
+                futures.add(commands.del(key));
+            } else if (timeToLives.get(i) <= 0L) {
+                futures.add(commands.set(key, value));
+            } else {
+                futures.add(commands.setex(key, timeToLives.get(i), value));
+            }
+        }
+        awaitAll(commands, futures);
+    }
+
+    /**
+     * @param timeToLives 过期时间-秒
+     */
+    static void expire(RedisConnection connection, List<byte[]> keys, List<Long> timeToLives) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        List<RedisFuture<?>> futures = new ArrayList<RedisFuture<?>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            futures.add(commands.expire(keys.get(i), timeToLives.get(i)));
+        }
+        awaitAll(commands, futures);
+    }
+
+    /**
+     * 每组key执行一次脚本，同一组的key必须在同一个slot
+     *
+     * @param keys 每组的key
+     * @param args 每组的参数
+     */
+    static void eval(RedisConnection connection, String script, List<byte[][]> keys, List<byte[][]> args) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        List<RedisFuture<?>> futures = new ArrayList<RedisFuture<?>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            futures.add(commands.<Long>eval(script, ScriptOutputType.INTEGER, keys.get(i), args.get(i)));
+        }
+        awaitAll(commands, futures);
+    }
+
+    /**
+     * 读取每个有序集合的前 count 个成员，返回值与key的顺序一致
+     */
+    static List<List<byte[]>> zRange(RedisConnection connection, List<byte[]> keys, long count) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        List<RedisFuture<List<byte[]>>> futures = new ArrayList<RedisFuture<List<byte[]>>>(keys.size());
+        for (byte[] key : keys) {
+            futures.add(commands.zrange(key, 0L, count - 1L));
+        }
+        List<List<byte[]>> results = new ArrayList<List<byte[]>>(keys.size());
+        for (RedisFuture<List<byte[]>> future : futures) {
+            results.add(await(commands, future));
+        }
+        return results;
+    }
+
+    static void zRem(RedisConnection connection, List<byte[]> keys, List<List<byte[]>> members) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        List<RedisFuture<?>> futures = new ArrayList<RedisFuture<?>>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (!members.get(i).isEmpty()) {
+                futures.add(commands.zrem(keys.get(i), members.get(i).toArray(new byte[members.get(i).size()][])));
+            }
+        }
+        awaitAll(commands, futures);
+    }
+
+    /**
+     * 在一个master节点上按模式SCAN，每页按slot分组后用脚本删除
+     *
+     * @param node         host:port
+     * @param pattern      SCAN的匹配模式
+     * @param count        每页数量
+     * @param unlinkScript KEYS为要删除的key，返回删除数量
+     * @param callback     每页删除后回调
+     */
+    static void scanAndUnlink(RedisConnection connection, String node, byte[] pattern, int count, String unlinkScript, BatchCallback callback) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands = commands(connection);
+        int separator = node.lastIndexOf(':');
+        RedisClusterAsyncCommands<byte[], byte[]> nodeCommands = commands.getConnection(node.substring(0, separator), Integer.parseInt(node.substring(separator + 1)));
+        String unlinkSha = await(commands, nodeCommands.scriptLoad(unlinkScript.getBytes(StandardCharsets.UTF_8)));
+        ScanArgs args = ScanArgs.Builder.matches(new String(pattern, StandardCharsets.UTF_8)).limit(count);
+        ScanCursor cursor = ScanCursor.INITIAL;
+        do {
+            KeyScanCursor<byte[]> page = await(commands, nodeCommands.scan(cursor, args));
+            cursor = page;
+            if (page.getKeys().isEmpty()) {
+                continue;
+            }
+            Collection<List<byte[]>> groups = RedisClusterSupport.groupBySlot(page.getKeys());
+            List<RedisFuture<Long>> futures = new ArrayList<RedisFuture<Long>>(groups.size());
+            for (List<byte[]> slotKeys : groups) {
+                futures.add(nodeCommands.<Long>evalsha(unlinkSha, ScriptOutputType.INTEGER, slotKeys.toArray(new byte[slotKeys.size()][])));
+            }
+            long removed = 0L;
+            for (RedisFuture<Long> future : futures) {
+                Long result = await(commands, future);
+                removed += result != null ? result : 0L;
+            }
+            callback.onBatch(removed);
+        } while (!cursor.isFinished());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands(RedisConnection connection) {
+        // spring-data-redis 的Lettuce连接使用byte[]编解码
+        return (RedisAdvancedClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+    }
+
+    private static void awaitAll(RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands, List<RedisFuture<?>> futures) {
+        for (RedisFuture<?> future : futures) {
+            await(commands, future);
+        }
+    }
+
+    private static <T> T await(RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands, RedisFuture<T> future) {
+        StatefulRedisClusterConnection<byte[], byte[]> stateful = commands.getStatefulConnection();
+        try {
+            return future.get(stateful.getTimeout(), stateful.getTimeoutUnit());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while waiting for redis cluster", e);
+        } catch (ExecutionException e) {
+            throw translate(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (TimeoutException e) {
+            throw translate(e);
+        }
+    }
+
+    private static RuntimeException translate(Exception e) {
+        DataAccessException translated = LettuceConverters.exceptionConverter().convert(e);
+        return translated != null ? translated : new RedisSystemException(e.getMessage(), e);
+    }
+
+    interface BatchCallback {
+        void onBatch(long removed);
+    }
+}
@@ -20,6 +20,10 @@ public class LockConfig {
     private long sleepMillis = 100;
 
     private long defaultExpireMs = 2000;
+    //看门狗：持有锁期间由后台线程定期续期，锁的超时时间可以设置得较短，持有者宕机后锁能较快失效
+    private boolean watchdogEnable = false;
+    //看门狗检查间隔-毫秒，续期在锁超时时间过去1/3后进行，间隔应小于最短超时时间的1/3
+    private long watchdogIntervalMs = 100;
 
     public int getRetryTimes() {
         return retryTimes;
@@ -44,4 +48,20 @@ public class LockConfig {
     public void setDefaultExpireMs(long defaultExpireMs) {
         this.defaultExpireMs = defaultExpireMs;
     }
+
+    public boolean isWatchdogEnable() {
+        return watchdogEnable;
+    }
+
+    public void setWatchdogEnable(boolean watchdogEnable) {
+        this.watchdogEnable = watchdogEnable;
+    }
+
+    public long getWatchdogIntervalMs() {
+        return watchdogIntervalMs;
+    }
+
+    public void setWatchdogIntervalMs(long watchdogIntervalMs) {
+        this.watchdogIntervalMs = watchdogIntervalMs;
+    }
 }
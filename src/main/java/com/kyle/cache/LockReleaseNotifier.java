@@ -0,0 +1,129 @@
+package com.kyle.cache;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.util.ByteArrayWrapper;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 锁释放通知
+ * <p>
+ * 释放锁时向频道发布锁的key，等待该锁的线程被立即唤醒后重试，不再依赖固定间隔轮询；
+ * 订阅不可用时等待超时后仍会重试，轮询只作为兜底
+ * <pre>
+ * CountDownLatch released = notifier.register(lockKey);
+ * try {
+ *     // 尝试加锁，失败后 notifier.await(released, timeout)
+ * } finally {
+ *     notifier.unregister(lockKey, released);
+ * }
+ * </pre>
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class LockReleaseNotifier implements MessageListener {
+
+    /**
+     * KEYS[1]:锁 ARGV[1]:持有者标识 ARGV[2]:锁超时时间-毫秒，加锁成功返回1
+     */
+    public static final String TRY_LOCK_LUA = "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 else return 0 end";
+
+    /**
+     * KEYS[1]:锁 ARGV[1]:持有者标识 ARGV[2]:通知频道，可选
+     */
+    public static final String RELEASE_LUA = "if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "local released = redis.call('del', KEYS[1]); "
+            + "if ARGV[2] then redis.call('publish', ARGV[2], KEYS[1]) end; "
+            + "return released "
+            + "else return 0 end";
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final byte[] channelBytes;
+    private final ConcurrentMap<ByteArrayWrapper, Set<CountDownLatch>> waiters = new ConcurrentHashMap<>();
+    //第一次有线程等待锁时才订阅，没有锁竞争时不占用订阅连接
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    public LockReleaseNotifier(RedisMessageListenerContainer listenerContainer, String channel) {
+        this.listenerContainer = listenerContainer;
+        this.channel = channel;
+        this.channelBytes = new StringRedisSerializer().serialize(channel);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public byte[] getChannelBytes() {
+        return channelBytes;
+    }
+
+    /**
+     * 登记等待，需在检查锁之前调用，避免错过检查和等待之间的释放通知
+     *
+     * @param lockKey
+     * @return
+     */
+    public CountDownLatch register(byte[] lockKey) {
+        if (subscribed.compareAndSet(false, true)) {
+            // 订阅完成前的释放通知会错过，由等待超时兜底
+            listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        waiters.compute(new ByteArrayWrapper(lockKey), (key, latches) -> {
+            Set<CountDownLatch> result = latches != null ? latches : new CopyOnWriteArraySet<CountDownLatch>();
+            result.add(latch);
+            return result;
+        });
+        return latch;
+    }
+
+    public void unregister(byte[] lockKey, final CountDownLatch latch) {
+        waiters.computeIfPresent(new ByteArrayWrapper(lockKey), (key, latches) -> {
+            latches.remove(latch);
+            return latches.isEmpty() ? null : latches;
+        });
+    }
+
+    /**
+     * 等待锁释放通知
+     *
+     * @param latch         {@link #register(byte[])}的返回值
+     * @param timeoutMillis 兜底等待时间
+     * @return 是否收到通知
+     * @throws InterruptedException
+     */
+    public static boolean await(CountDownLatch latch, long timeoutMillis) throws InterruptedException {
+        if (latch == null) {
+            Thread.sleep(timeoutMillis);
+            return false;
+        }
+        return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        byte[] body = message.getBody();
+        if (body == null) {
+            return;
+        }
+        Set<CountDownLatch> latches = waiters.get(new ByteArrayWrapper(body));
+        if (latches != null) {
+            for (CountDownLatch latch : latches) {
+                latch.countDown();
+            }
+        }
+    }
+}
@@ -2,55 +2,95 @@ package com.kyle.cache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.util.ByteArrayWrapper;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisCluster;
-import redis.clients.jedis.JedisCommands;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
 import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 分布式锁工具类
+ * <p>
+ * 同一线程对同一个key可以重复加锁，加锁和释放次数相同时才真正释放；
+ * 开启看门狗时由共享的后台线程批量为持有中的锁续期，持有线程结束后不再续期
  *
  * @author: carroll
  * @date 2019/3/25
  * Copyright @https://github.com/carroll0911. 
  */
 @Component
-public class LockUtils {
+public class LockUtils implements DisposableBean {
     private static Logger log = LoggerFactory.getLogger(LockUtils.class);
     private static final String LOCK_KEY_PREFIX = "LOCK";
     private static final String KEY_SEPERATOR = "#";
 
-    private static final ThreadLocal<Map<String, String>> lockIds = new ThreadLocal<Map<String, String>>() {
+    // 当前线程持有的锁，key为调用方传入的key
+    private static final ThreadLocal<Map<String, LockHold>> lockHolds = new ThreadLocal<Map<String, LockHold>>() {
         @Override
-        protected Map<String, String> initialValue() {
+        protected Map<String, LockHold> initialValue() {
             return new HashMap<>(16);
         }
     };
 
-    private static final ThreadLocal<Map<String, Long>> lockTimes = new ThreadLocal<Map<String, Long>>() {
+    // 所有LockUtils共用的续期线程
+    private static final ScheduledExecutorService WATCHDOG_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
-        protected Map<String, Long> initialValue() {
-            return new HashMap<>(16);
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
         }
-    };
+    });
+
+    // 需要续期的锁
+    private final Set<LockHold> renewals = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean watchdogStarted = new AtomicBoolean();
+    private volatile ScheduledFuture<?> watchdog;
     @Resource(
             name = "cacheRedisTemplate"
     )
-    private RedisTemplate redisTemplate;
+    private RedisTemplate<?, ?> redisTemplate;
     @Autowired
     private LockConfig lockConfig;
     @Autowired
     private CacheRedisConfig cacheRedisConfig;
+    @Autowired(required = false)
+    private LockReleaseNotifier lockReleaseNotifier;
 
     public static final String UNLOCK_LUA;
 
+    /**
+     * KEYS:锁 ARGV:每两个一组，持有者标识和锁超时时间-毫秒；返回与KEYS对应的数组，续期成功为1
+     */
+    public static final String RENEW_LUA = "local renewed = {}; "
+            + "for i, key in ipairs(KEYS) do "
+            + "if redis.call('get', key) == ARGV[i * 2 - 1] then renewed[i] = redis.call('pexpire', key, ARGV[i * 2]) else renewed[i] = 0 end "
+            + "end; "
+            + "return renewed";
+
+    private static final RedisScript<Object> TRY_LOCK_SCRIPT = RedisScripts.of(LockReleaseNotifier.TRY_LOCK_LUA);
+    private static final RedisScript<Object> RELEASE_SCRIPT = RedisScripts.of(LockReleaseNotifier.RELEASE_LUA);
+    private static final RedisScript<Object> RENEW_SCRIPT = RedisScripts.of(RENEW_LUA);
+    private static final byte[] RENEW_SCRIPT_BYTES = RENEW_LUA.getBytes(StandardCharsets.UTF_8);
+
     static {
         StringBuilder sb = new StringBuilder();
         sb.append("if redis.call(\"get\",KEYS[1]) == ARGV[1] ");
@@ -63,7 +103,7 @@ public class LockUtils {
     }
 
     /**
-     * 获取锁
+     * 获取锁，当前线程已持有时只增加持有次数
      *
      * @param key         key
      * @param expire      锁超时时间
@@ -72,22 +112,52 @@ public class LockUtils {
      * @return
      */
     public boolean lock(String key, long expire, int retryTimes, long sleepMillis) {
-        boolean result = setRedis(key, expire);
-        // 如果获取锁失败，按照传入的重试次数进行重试
-        while (!result && retryTimes-- > 0) {
-            try {
-                log.debug("lock [{}] failed, retrying...{}", key, retryTimes);
-                if (Thread.interrupted()) {
-                    log.error("Thread interputed");
-                    break;
+        LockHold hold = lockHolds.get().get(key);
+        if (hold != null) {
+            if (hold.isValid()) {
+                hold.count++;
+                return true;
+            }
+            // 锁已超时或续期失败，已经不再持有，重新加锁
+            log.warn("锁未被正常释放:{}-{}", Thread.currentThread().getName(), key);
+            dropHold(key, hold);
+        }
+        byte[] lockKey = getKey(key).getBytes(StandardCharsets.UTF_8);
+        // 先登记等待再尝试加锁，加锁失败后等待释放通知，sleepMillis只作为收不到通知时的兜底间隔
+        CountDownLatch released = registerWaiter(lockKey);
+        try {
+            boolean result = setRedis(key, expire);
+            // 如果获取锁失败，按照传入的重试次数进行重试
+            while (!result && retryTimes-- > 0) {
+                try {
+                    log.debug("lock [{}] failed, retrying...{}", key, retryTimes);
+                    if (Thread.interrupted()) {
+                        log.error("Thread interputed");
+                        break;
+                    }
+                    LockReleaseNotifier.await(released, sleepMillis);
+                } catch (InterruptedException e) {
+                    log.error(e.getMessage(), e);
+                    Thread.currentThread().interrupt();
                 }
-                Thread.sleep(sleepMillis);
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
+                unregisterWaiter(lockKey, released);
+                released = registerWaiter(lockKey);
+                result = setRedis(key, expire);
             }
-            result = setRedis(key, expire);
+            return result;
+        } finally {
+            unregisterWaiter(lockKey, released);
+        }
+    }
+
+    private CountDownLatch registerWaiter(byte[] lockKey) {
+        return lockReleaseNotifier != null ? lockReleaseNotifier.register(lockKey) : null;
+    }
+
+    private void unregisterWaiter(byte[] lockKey, CountDownLatch released) {
+        if (released != null) {
+            lockReleaseNotifier.unregister(lockKey, released);
         }
-        return result;
     }
 
     public boolean lock(String key, long expire) {
@@ -102,18 +172,22 @@ public class LockUtils {
         try {
             String uuid = UUID.randomUUID().toString();
 
-            String result = (String) redisTemplate.execute((RedisCallback<String>) connection -> {
-                JedisCommands commands = (JedisCommands) connection.getNativeConnection();
-                return commands.set(getKey(key), uuid, "NX", "PX", expire <= 0 ? lockConfig.getDefaultExpireMs() : expire);
-            });
-            boolean lockRes = !StringUtils.isEmpty(result);
+            byte[] lockKey = getKey(key).getBytes(StandardCharsets.UTF_8);
+            long leaseMillis = expire <= 0 ? lockConfig.getDefaultExpireMs() : expire;
+            byte[] lease = String.valueOf(leaseMillis).getBytes(StandardCharsets.UTF_8);
+            // 超时时间从发出命令前开始算，本地判断的超时不会晚于redis
+            long start = System.currentTimeMillis();
+            // 通过脚本执行 SET NX PX，Jedis和Lettuce、单机和集群使用同一条路径
+            Long result = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    (Long) RedisScripts.eval(connection, TRY_LOCK_SCRIPT, ReturnType.INTEGER, 1, lockKey, uuid.getBytes(StandardCharsets.UTF_8), lease));
+            boolean lockRes = result != null && result > 0;
             if (lockRes) {
-                String oldKey = lockIds.get().get(key);
-                if (!StringUtils.isEmpty(oldKey)) {
-                    log.warn("锁未被正常释放:{}-{}", Thread.currentThread().getName(), key);
+                LockHold hold = new LockHold(key, lockKey, uuid, leaseMillis, start);
+                lockHolds.get().put(key, hold);
+                if (lockConfig.isWatchdogEnable()) {
+                    renewals.add(hold);
+                    startWatchdog();
                 }
-                lockIds.get().put(key, uuid);
-                lockTimes.get().put(key, System.currentTimeMillis());
             }
             return lockRes;
         } catch (Exception e) {
@@ -123,50 +197,217 @@ public class LockUtils {
     }
 
     /**
-     * 释放锁
+     * 释放锁，重复加锁时只减少持有次数
      *
      * @param key
+     * @return 释放成功或仍被当前线程持有时返回true，锁已超时或被其他持有者获取时返回false，
+     * 重复加锁时看门狗续期失败也返回false
      */
     public boolean releaseLock(String key) {
+        LockHold hold = lockHolds.get().get(key);
+        if (hold != null && hold.count > 1) {
+            hold.count--;
+            // 续期失败时锁已不再持有，重入的释放同样按失败返回
+            if (hold.lost) {
+                log.warn("释放重入锁时锁已超时或被其他持有者获取:{}-{}", Thread.currentThread().getName(), key);
+                return false;
+            }
+            return true;
+        }
+        if (hold != null) {
+            dropHold(key, hold);
+        }
         // 释放锁的时候，有可能因为持锁之后方法执行时间大于锁的有效期，此时有可能已经被另外一个线程持有锁，所以不能直接删除
         try {
-            List<String> keys = new ArrayList<String>();
-            keys.add(getKey(key));
-            List<String> args = new ArrayList<String>();
-            args.add(lockIds.get().get(key));
+            String lockId = hold != null ? hold.lockId : null;
+            byte[][] keysAndArgs;
+            if (lockReleaseNotifier != null) {
+                keysAndArgs = new byte[][]{getKey(key).getBytes(StandardCharsets.UTF_8), toBytes(lockId), lockReleaseNotifier.getChannelBytes()};
+            } else {
+                keysAndArgs = new byte[][]{getKey(key).getBytes(StandardCharsets.UTF_8), toBytes(lockId)};
+            }
 
             // 使用lua脚本删除redis中匹配value的key，可以避免由于方法执行时间过长而redis锁自动过期失效的时候误删其他线程的锁
-            // spring自带的执行脚本方法中，集群模式直接抛出不支持执行脚本的异常，所以只能拿到原redis的connection来执行脚本
-
-            Long result = (Long) redisTemplate.execute((RedisCallback<Long>) connection -> {
-                Object nativeConnection = connection.getNativeConnection();
-                // 集群模式和单机模式虽然执行脚本的方法一样，但是没有共同的接口，所以只能分开执行
-                // 集群模式
-                if (nativeConnection instanceof JedisCluster) {
-                    return (Long) ((JedisCluster) nativeConnection).eval(UNLOCK_LUA, keys, args);
-                }
+            // 释放成功时同时发布通知，唤醒等待该锁的线程
+            // spring自带的执行脚本方法中，集群模式直接抛出不支持执行脚本的异常，由RedisScripts按连接类型执行
+            Long result = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    (Long) RedisScripts.eval(connection, RELEASE_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs));
+            if (hold != null) {
+                log.debug("锁占用时长:{}-{}-{}", Thread.currentThread().getName(), key, System.currentTimeMillis() - hold.lockedAt);
+            }
+            return result != null && result > 0;
+        } catch (Exception e) {
+            log.error("release lock occured an exception", e);
+        }
+        return false;
+    }
 
-                // 单机模式
-                else if (nativeConnection instanceof Jedis) {
-                    return (Long) ((Jedis) nativeConnection).eval(UNLOCK_LUA, keys, args);
+    private void dropHold(String key, LockHold hold) {
+        lockHolds.get().remove(key);
+        renewals.remove(hold);
+    }
+
+    private void startWatchdog() {
+        if (watchdogStarted.compareAndSet(false, true)) {
+            long interval = Math.max(lockConfig.getWatchdogIntervalMs(), 1L);
+            watchdog = WATCHDOG_EXECUTOR.scheduleWithFixedDelay(this::renewLeases, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 为超时时间已过去1/3的锁续期，单机一次脚本，集群每个slot一次脚本
+     */
+    private void renewLeases() {
+        try {
+            long now = System.currentTimeMillis();
+            List<LockHold> due = new ArrayList<>();
+            for (LockHold hold : renewals) {
+                if (!hold.owner.isAlive()) {
+                    renewals.remove(hold);
+                    log.warn("持有锁的线程已结束，停止续期:{}-{}", hold.owner.getName(), hold.key);
+                } else if (hold.isRenewalDue(now)) {
+                    due.add(hold);
                 }
-                return 0L;
-            });
-            Long lockTime = lockTimes.get().get(key);
-            if (lockTime != null) {
-                log.info("锁占用时长:{}-{}-{}", Thread.currentThread().getName(), key, System.currentTimeMillis() - lockTime);
             }
-            boolean release = result != null && result > 0;
-            if (release) {
-                lockIds.get().remove(key);
+            if (!due.isEmpty()) {
+                renew(due);
             }
         } catch (Exception e) {
-            log.error("release lock occured an exception", e);
+            log.error("renew lock occured an exception", e);
         }
-        return false;
+    }
+
+    private void renew(final List<LockHold> due) {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            if (!RedisClusterSupport.isClusterConnection(connection)) {
+                long now = System.currentTimeMillis();
+                renewed(due, (List<?>) RedisScripts.eval(connection, RENEW_SCRIPT, ReturnType.MULTI, due.size(), renewArgs(due)), now);
+            } else if (RedisClusterSupport.supportsNodeExecution(connection)) {
+                // 每个节点一个pipeline，每个slot一次脚本，节点之间并行
+                final Map<ByteArrayWrapper, LockHold> byKey = new HashMap<>();
+                List<byte[]> lockKeys = new ArrayList<>(due.size());
+                for (LockHold hold : due) {
+                    byKey.put(new ByteArrayWrapper(hold.lockKey), hold);
+                    lockKeys.add(hold.lockKey);
+                }
+                final Map<String, Map<Integer, List<byte[]>>> groups = RedisClusterSupport.groupByNode(connection, lockKeys);
+                RedisClusterSupport.executeOnNodes(connection, groups.keySet(), (node, jedis) -> {
+                    List<List<LockHold>> slotHolds = new ArrayList<>();
+                    List<Response<Object>> responses = new ArrayList<>();
+                    long now = System.currentTimeMillis();
+                    Pipeline pipeline = jedis.pipelined();
+                    for (List<byte[]> keys : groups.get(node).values()) {
+                        List<LockHold> holds = new ArrayList<>(keys.size());
+                        for (byte[] key : keys) {
+                            holds.add(byKey.get(new ByteArrayWrapper(key)));
+                        }
+                        slotHolds.add(holds);
+                        responses.add(pipeline.eval(RENEW_SCRIPT_BYTES, holds.size(), renewArgs(holds)));
+                    }
+                    pipeline.sync();
+                    for (int i = 0; i < slotHolds.size(); i++) {
+                        renewed(slotHolds.get(i), (List<?>) responses.get(i).get(), now);
+                    }
+                    return null;
+                });
+            } else {
+                // 脚本中的key必须在同一个slot
+                for (List<LockHold> holds : groupBySlot(due)) {
+                    long now = System.currentTimeMillis();
+                    renewed(holds, (List<?>) RedisScripts.eval(connection, RENEW_SCRIPT, ReturnType.MULTI, holds.size(), renewArgs(holds)), now);
+                }
+            }
+            return null;
+        });
+    }
+
+    private static byte[][] renewArgs(List<LockHold> holds) {
+        byte[][] keysAndArgs = new byte[holds.size() * 3][];
+        for (int i = 0; i < holds.size(); i++) {
+            LockHold hold = holds.get(i);
+            keysAndArgs[i] = hold.lockKey;
+            keysAndArgs[holds.size() + i * 2] = toBytes(hold.lockId);
+            keysAndArgs[holds.size() + i * 2 + 1] = String.valueOf(hold.leaseMillis).getBytes(StandardCharsets.UTF_8);
+        }
+        return keysAndArgs;
+    }
+
+    /**
+     * @param holds   续期的锁
+     * @param results 脚本返回值，与holds一一对应
+     * @param now     发出续期命令前的时间
+     */
+    private void renewed(List<LockHold> holds, List<?> results, long now) {
+        for (int i = 0; i < holds.size(); i++) {
+            LockHold hold = holds.get(i);
+            Object renewed = results != null && i < results.size() ? results.get(i) : null;
+            if (renewed instanceof Number && ((Number) renewed).longValue() > 0) {
+                hold.renewedAt = now;
+            } else {
+                hold.lost = true;
+                // 已释放的锁不再提示
+                if (renewals.remove(hold)) {
+                    log.warn("锁续期失败，锁已超时或被其他持有者获取:{}-{}", hold.owner.getName(), hold.key);
+                }
+            }
+        }
+    }
+
+    private static Collection<List<LockHold>> groupBySlot(List<LockHold> holds) {
+        Map<Integer, List<LockHold>> slots = new HashMap<>();
+        for (LockHold hold : holds) {
+            slots.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(hold.lockKey), slot -> new ArrayList<>()).add(hold);
+        }
+        return slots.values();
+    }
+
+    @Override
+    public void destroy() {
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+        renewals.clear();
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
     }
 
     private String getKey(String key) {
         return String.format("%s:%s%s%s", cacheRedisConfig.getCacheName(), LOCK_KEY_PREFIX, KEY_SEPERATOR, key);
     }
+
+    /**
+     * 线程持有的一把锁，count只由持有线程修改
+     */
+    static class LockHold {
+        private final String key;
+        private final byte[] lockKey;
+        private final String lockId;
+        private final long leaseMillis;
+        private final long lockedAt;
+        private final Thread owner = Thread.currentThread();
+        private int count = 1;
+        //最近一次加锁或续期的时间
+        private volatile long renewedAt;
+        //续期失败，锁已不再持有
+        private volatile boolean lost;
+
+        LockHold(String key, byte[] lockKey, String lockId, long leaseMillis, long lockedAt) {
+            this.key = key;
+            this.lockKey = lockKey;
+            this.lockId = lockId;
+            this.leaseMillis = leaseMillis;
+            this.lockedAt = lockedAt;
+            this.renewedAt = lockedAt;
+        }
+
+        boolean isValid() {
+            return !lost && System.currentTimeMillis() < renewedAt + leaseMillis;
+        }
+
+        boolean isRenewalDue(long now) {
+            return now >= renewedAt + leaseMillis / 3;
+        }
+    }
 }
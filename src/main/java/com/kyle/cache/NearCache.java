@@ -0,0 +1,188 @@
+package com.kyle.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.connection.util.ByteArrayWrapper;
+import org.springframework.util.Assert;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地一级缓存，按条目数和过期时间限制大小，分段加锁的 LRU
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class NearCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final String name;
+    private final long expireMillis;
+    private final Segment[] segments;
+    // 每次失效递增，失效的key记录失效时的序号，读穿期间该key发生过失效时不再写入本地缓存
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public NearCache(String name, int maxSize, long expireSeconds) {
+        Assert.hasText(name, "CacheName must not be null or empty!");
+        Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+        Assert.isTrue(expireSeconds > 0, "expireSeconds must be greater than 0");
+        this.name = name;
+        this.expireMillis = expireSeconds * 1000L;
+        int segmentCount = Math.min(MAX_SEGMENTS, maxSize);
+        this.segments = new Segment[segmentCount];
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 读取本地缓存，未命中或已过期返回null
+     *
+     * @param key 缓存key的序列化结果
+     * @return
+     */
+    public Cache.ValueWrapper get(byte[] key) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        Segment segment = segmentFor(wrapper);
+        synchronized (segment) {
+            NearEntry entry = segment.get(wrapper);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt < System.currentTimeMillis()) {
+                segment.remove(wrapper);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * 读穿开始前获取的标记，配合{@link #putIfValid(byte[], Object, long)}使用
+     *
+     * @return
+     */
+    public long currentVersion() {
+        return invalidations.get();
+    }
+
+    public void put(byte[] key, Object storeValue) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        Segment segment = segmentFor(wrapper);
+        synchronized (segment) {
+            segment.put(wrapper, new NearEntry(storeValue, System.currentTimeMillis() + expireMillis));
+        }
+    }
+
+    /**
+     * 仅当读取期间这个key没有失效时写入，避免把其他节点已经覆盖的旧值放进本地缓存，其他key的失效不影响
+     *
+     * @param key
+     * @param storeValue
+     * @param version    {@link #currentVersion()}
+     */
+    public void putIfValid(byte[] key, Object storeValue, long version) {
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        Segment segment = segmentFor(wrapper);
+        synchronized (segment) {
+            if (segment.invalidatedAt(wrapper) <= version) {
+                segment.put(wrapper, new NearEntry(storeValue, System.currentTimeMillis() + expireMillis));
+            }
+        }
+    }
+
+    public void evict(byte[] key) {
+        long stamp = invalidations.incrementAndGet();
+        ByteArrayWrapper wrapper = new ByteArrayWrapper(key);
+        Segment segment = segmentFor(wrapper);
+        synchronized (segment) {
+            segment.remove(wrapper);
+            segment.invalidate(wrapper, stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = invalidations.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.invalidateAll(stamp);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(ByteArrayWrapper key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+
+    private static class NearEntry extends SimpleValueWrapper {
+        private final long expireAt;
+
+        NearEntry(Object value, long expireAt) {
+            super(value);
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class Segment extends LinkedHashMap<ByteArrayWrapper, NearEntry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+        // key -> 最近一次失效的序号，按失效先后排列，最多保留maxSize个
+        private final Map<ByteArrayWrapper, Long> tombstones = new LinkedHashMap<ByteArrayWrapper, Long>();
+        // 不在tombstones中的key按这个序号判断：clear的序号或已移出tombstones的最大序号
+        private long invalidatedFloor;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteArrayWrapper, NearEntry> eldest) {
+            return size() > maxSize;
+        }
+
+        long invalidatedAt(ByteArrayWrapper key) {
+            Long stamp = tombstones.get(key);
+            return stamp != null ? stamp : invalidatedFloor;
+        }
+
+        void invalidate(ByteArrayWrapper key, long stamp) {
+            // 先移除再放入，保持按失效先后排列
+            tombstones.remove(key);
+            tombstones.put(key, stamp);
+            if (tombstones.size() > maxSize) {
+                Iterator<Long> eldest = tombstones.values().iterator();
+                invalidatedFloor = Math.max(invalidatedFloor, eldest.next());
+                eldest.remove();
+            }
+        }
+
+        void invalidateAll(long stamp) {
+            tombstones.clear();
+            invalidatedFloor = stamp;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.kyle.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 通过 Redis pub/sub 在节点间同步本地一级缓存的失效
+ * <p>
+ * 每个缓存使用一个频道 [缓存名]~invalidation，消息内容为 节点ID + 缓存key，key为空表示清空整个缓存
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public class NearCacheInvalidator implements MessageListener {
+    private static Logger log = LoggerFactory.getLogger(NearCacheInvalidator.class);
+
+    private static final String CHANNEL_SUFFIX = "~invalidation";
+
+    private final byte[] nodeId = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+    private final RedisOperations<?, ?> redisOperations;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Map<String, NearCache> nearCaches = new ConcurrentHashMap<>();
+
+    public NearCacheInvalidator(RedisOperations<?, ?> redisOperations, RedisMessageListenerContainer listenerContainer) {
+        this.redisOperations = redisOperations;
+        this.listenerContainer = listenerContainer;
+    }
+
+    /**
+     * 订阅缓存的失效频道
+     *
+     * @param nearCache
+     */
+    public void register(NearCache nearCache) {
+        String channel = getChannel(nearCache.getName());
+        if (nearCaches.putIfAbsent(channel, nearCache) == null) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+        }
+    }
+
+    /**
+     * 通知其他节点移除key
+     *
+     * @param cacheName
+     * @param key
+     */
+    public void publishEvict(String cacheName, byte[] key) {
+        publish(cacheName, key);
+    }
+
+    /**
+     * 批量通知其他节点移除key，非集群模式下一次pipeline发送
+     *
+     * @param cacheName
+     * @param keys
+     */
+    public void publishEvict(final String cacheName, final Collection<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        final byte[] channel = new StringRedisSerializer().serialize(getChannel(cacheName));
+        try {
+            redisOperations.execute((RedisCallback<Void>) connection -> {
+                boolean pipelined = !RedisClusterSupport.isClusterConnection(connection);
+                if (pipelined) {
+                    connection.openPipeline();
+                }
+                try {
+                    for (byte[] key : keys) {
+                        connection.publish(channel, toMessage(key));
+                    }
+                } finally {
+                    if (pipelined) {
+                        connection.closePipeline();
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("publish near cache invalidation failed: {}", cacheName, e);
+        }
+    }
+
+    /**
+     * 通知其他节点清空缓存
+     *
+     * @param cacheName
+     */
+    public void publishClear(String cacheName) {
+        publish(cacheName, new byte[0]);
+    }
+
+    private void publish(String cacheName, byte[] key) {
+        final byte[] channel = new StringRedisSerializer().serialize(getChannel(cacheName));
+        final byte[] message = toMessage(key);
+        try {
+            redisOperations.execute((RedisCallback<Long>) connection -> connection.publish(channel, message));
+        } catch (RuntimeException e) {
+            // 发布失败时其他节点的本地缓存最多在过期时间后恢复一致，不影响本次写入
+            log.warn("publish near cache invalidation failed: {}", cacheName, e);
+        }
+    }
+
+    private byte[] toMessage(byte[] key) {
+        byte[] message = new byte[nodeId.length + key.length];
+        System.arraycopy(nodeId, 0, message, 0, nodeId.length);
+        System.arraycopy(key, 0, message, nodeId.length, key.length);
+        return message;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        NearCache nearCache = nearCaches.get(new StringRedisSerializer().deserialize(message.getChannel()));
+        byte[] body = message.getBody();
+        if (nearCache == null || body == null || body.length < nodeId.length) {
+            return;
+        }
+        if (Arrays.equals(nodeId, Arrays.copyOf(body, nodeId.length))) {
+            return;
+        }
+        if (body.length == nodeId.length) {
+            nearCache.clear();
+        } else {
+            nearCache.evict(Arrays.copyOfRange(body, nodeId.length, body.length));
+        }
+    }
+
+    private static String getChannel(String cacheName) {
+        return cacheName + CHANNEL_SUFFIX;
+    }
+}
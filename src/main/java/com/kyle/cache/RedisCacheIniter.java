@@ -6,7 +6,9 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
@@ -17,8 +19,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.DefaultLettucePool;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -65,7 +70,23 @@ public class RedisCacheIniter extends CachingConfigurerSupport {
         }
     }
 
+    /**
+     * 连接工厂不注册为Bean，避免替换应用自己的RedisConnectionFactory；由cacheRedisTemplate销毁时关闭
+     *
+     * @return
+     */
     public RedisConnectionFactory redisConnectionFactory() {
+        if (CacheRedisConfig.CLIENT_LETTUCE.equalsIgnoreCase(cacheRedisConfig.getClient())) {
+            return lettuceConnectionFactory();
+        }
+        if (cacheRedisConfig.isAutoPipelineEnable()) {
+            return new AutoPipeliningConnectionFactory(jedisConnectionFactory(), cacheRedisConfig.getAutoPipelineConnections(),
+                    cacheRedisConfig.getAutoPipelineMaxBatch(), cacheRedisConfig.getTimeout());
+        }
+        return jedisConnectionFactory();
+    }
+
+    private RedisConnectionFactory jedisConnectionFactory() {
         JedisPoolConfig jedisPoolConfig = new JedisPoolConfig();
         jedisPoolConfig.setMaxIdle(cacheRedisConfig.getMaxIdle());
         jedisPoolConfig.setMaxTotal(cacheRedisConfig.getMaxTotal());
@@ -93,6 +114,48 @@ public class RedisCacheIniter extends CachingConfigurerSupport {
         return jedisConnectionFactory;
     }
 
+    /**
+     * Lettuce连接工厂，普通命令共用一个多路复用的连接；
+     * 单机模式下事务等需要独占连接的操作从连接池中获取，集群模式不使用事务
+     *
+     * @return
+     */
+    private RedisConnectionFactory lettuceConnectionFactory() {
+        if (cacheRedisConfig.isClusterEnable()) {
+            LettuceClusterConnectionFactory clusterConnectionFactory = new LettuceClusterConnectionFactory(new RedisClusterConfiguration(getNodes()));
+            clusterConnectionFactory.setPassword(cacheRedisConfig.getPassword());
+            clusterConnectionFactory.setTimeout(cacheRedisConfig.getTimeout());
+            clusterConnectionFactory.afterPropertiesSet();
+            return clusterConnectionFactory;
+        }
+        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+        poolConfig.setMaxIdle(cacheRedisConfig.getMaxIdle());
+        poolConfig.setMaxTotal(cacheRedisConfig.getMaxTotal());
+        poolConfig.setMaxWaitMillis(cacheRedisConfig.getMaxWaitMillis());
+        DefaultLettucePool pool = new DefaultLettucePool(cacheRedisConfig.getHost(), cacheRedisConfig.getPort(), poolConfig);
+        pool.setPassword(cacheRedisConfig.getPassword());
+        pool.setDatabase(cacheRedisConfig.getDatabase());
+        pool.setTimeout(cacheRedisConfig.getTimeout());
+        pool.afterPropertiesSet();
+
+        LettuceConnectionFactory lettuceConnectionFactory = new LettuceConnectionFactory(pool) {
+            @Override
+            public void destroy() {
+                super.destroy();
+                // LettuceConnectionFactory不关闭传入的连接池
+                pool.destroy();
+            }
+        };
+        lettuceConnectionFactory.setHostName(cacheRedisConfig.getHost());
+        lettuceConnectionFactory.setPort(cacheRedisConfig.getPort());
+        lettuceConnectionFactory.setShareNativeConnection(true);
+        lettuceConnectionFactory.setTimeout(cacheRedisConfig.getTimeout());
+        lettuceConnectionFactory.setDatabase(cacheRedisConfig.getDatabase());
+        lettuceConnectionFactory.setPassword(cacheRedisConfig.getPassword());
+        lettuceConnectionFactory.afterPropertiesSet();
+        return lettuceConnectionFactory;
+    }
+
     private List<String> getNodes() {
         List<String> nodes = new ArrayList<>();
         if (!StringUtils.isEmpty(cacheRedisConfig.getHost())) {
@@ -111,17 +174,130 @@ public class RedisCacheIniter extends CachingConfigurerSupport {
         ExtendRedisCacheManager cacheManager = new ExtendRedisCacheManager(redisTemplate());
         cacheManager.setUsePrefix(cacheRedisConfig.isUsePrefix());
         if (cacheRedisConfig.isUsePrefix()) {
-            cacheManager.setCachePrefix(new ExtendRedisCachePrefix(cacheRedisConfig.getCacheName()));
+            ExtendRedisCachePrefix cachePrefix = new ExtendRedisCachePrefix(cacheRedisConfig.getCacheName());
+            if (cacheRedisConfig.isGenerationEnable()) {
+                cachePrefix.setGenerations(new CacheGenerations(redisTemplate(), cacheMessageListenerContainer(),
+                        cacheRedisConfig.getCacheName() + "~generation", cacheRedisConfig.getGenerationRefreshMillis()));
+            }
+            cacheManager.setCachePrefix(cachePrefix);
         }
         cacheManager.setDefaultExpiration(cacheRedisConfig.getDefaultExpiration());
+        cacheManager.setExpirationJitter(cacheRedisConfig.getExpirationJitter());
         cacheManager.setDefaultCacheName(cacheRedisConfig.getCacheName());
+        cacheManager.setCacheSettings(cacheRedisConfig.getCaches());
+        if (isNearCacheEnabled()) {
+            cacheManager.setNearCacheInvalidator(nearCacheInvalidator());
+        }
+        cacheManager.setLockReleaseNotifier(lockReleaseNotifier());
+        cacheManager.setCacheSerializers(new CacheSerializers(new JacksonRedisSerializer(objectMapper()),
+                StringUtils.commaDelimitedListToSet(cacheRedisConfig.getTrustedPackages())));
+        cacheManager.setDefaultSerializer(cacheRedisConfig.getSerializer());
+        cacheManager.setAsyncExecutor(cacheAsyncExecutor());
         return cacheManager;
     }
 
+    /**
+     * 缓存异步操作的I/O线程池
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "shutdown")
+    public CacheAsyncExecutor cacheAsyncExecutor() {
+        return new CacheAsyncExecutor(cacheRedisConfig.getAsyncThreads(), cacheRedisConfig.getAsyncQueueCapacity(),
+                cacheRedisConfig.getAsyncTimeoutMillis());
+    }
+
+    /**
+     * 缓存统计的MBean，按缓存名查看命中率、加载和Redis调用耗时
+     *
+     * @return
+     */
+    @Bean
+    public CacheMetricsExporter cacheMetricsExporter() {
+        return new CacheMetricsExporter((ExtendRedisCacheManager) cacheManager(), cacheRedisConfig.getCacheName());
+    }
+
+    @Bean
+    public LockReleaseNotifier lockReleaseNotifier() {
+        return new LockReleaseNotifier(cacheMessageListenerContainer(), cacheRedisConfig.getCacheName() + "~lock-released");
+    }
+
+    /**
+     * 本地缓存的失效通知，只在有缓存开启本地缓存时由缓存管理器创建，不注册为Bean
+     *
+     * @return
+     */
+    private NearCacheInvalidator nearCacheInvalidator() {
+        return new NearCacheInvalidator(redisTemplate(), cacheMessageListenerContainer());
+    }
+
+    private boolean isNearCacheEnabled() {
+        if (cacheRedisConfig.getCaches() == null) {
+            return false;
+        }
+        for (CacheSettings settings : cacheRedisConfig.getCaches().values()) {
+            if (settings != null && settings.isNearCacheEnable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 缓存内部使用的订阅容器，本地缓存失效、缓存版本号和锁释放通知共用；
+     * 没有订阅频道时不占用订阅连接，各功能在第一次使用时才订阅
+     *
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheMessageListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisTemplate().getConnectionFactory());
+        return container;
+    }
+
     @Bean(name = "cacheRedisTemplate")
     public RedisTemplate<String, String> redisTemplate() {
-        StringRedisTemplate template = new StringRedisTemplate(redisConnectionFactory());
-        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
+        StringRedisTemplate template = new CacheRedisTemplate(redisConnectionFactory());
+        template.setValueSerializer(jacksonSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * 缓存使用的RedisTemplate，销毁时关闭连接工厂；
+     * 依赖它的缓存管理器、订阅容器等先于它销毁，回写缓冲区在连接关闭前写完
+     */
+    static class CacheRedisTemplate extends StringRedisTemplate implements DisposableBean {
+        CacheRedisTemplate(RedisConnectionFactory connectionFactory) {
+            super(connectionFactory);
+        }
+
+        @Override
+        public void destroy() throws Exception {
+            if (getConnectionFactory() instanceof DisposableBean) {
+                ((DisposableBean) getConnectionFactory()).destroy();
+            }
+        }
+    }
+
+    /**
+     * 缓存值默认使用的Jackson序列化
+     *
+     * @return
+     */
+    public static Jackson2JsonRedisSerializer<Object> jacksonSerializer() {
+        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
+        jackson2JsonRedisSerializer.setObjectMapper(objectMapper());
+        return jackson2JsonRedisSerializer;
+    }
+
+    /**
+     * 缓存值使用的ObjectMapper，保存实际类型以便按Object读取
+     *
+     * @return
+     */
+    public static ObjectMapper objectMapper() {
         ObjectMapper om = new ObjectMapper();
         om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
         om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
@@ -129,9 +305,6 @@ public class RedisCacheIniter extends CachingConfigurerSupport {
         // 解决jackson2无法反序列化LocalDateTime的问题
         om.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         om.registerModule(new JavaTimeModule());
-        jackson2JsonRedisSerializer.setObjectMapper(om);
-        template.setValueSerializer(jackson2JsonRedisSerializer);
-        template.afterPropertiesSet();
-        return template;
+        return om;
     }
 }
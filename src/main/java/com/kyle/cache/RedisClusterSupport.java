@@ -0,0 +1,283 @@
+package com.kyle.cache;
+
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.DecoratedRedisConnection;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.util.ClassUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 集群模式下按节点执行命令的工具
+ * <p>
+ * spring-data-redis 的集群连接不支持pipeline，这里按 slot 把key分到各个master，
+ * 每个节点取一个 Jedis 连接执行pipeline，各节点并行执行。节点拓扑在本地缓存一段时间，
+ * 执行出错（例如 MOVED）时调用{@link #refreshTopology(RedisConnection)}后由调用方退回逐个key执行。
+ * Lettuce集群连接由 {@link LettuceClusterSupport} 通过共享连接异步批量执行
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public final class RedisClusterSupport {
+    private static final long TOPOLOGY_TTL_MILLIS = 10000L;
+    private static final int MAX_NODE_THREADS = 32;
+
+    private static final boolean LETTUCE_PRESENT = ClassUtils.isPresent("com.lambdaworks.redis.cluster.api.async.RedisAdvancedClusterAsyncCommands", RedisClusterSupport.class.getClassLoader());
+
+    private static final Map<Object, Topology> TOPOLOGIES = Collections.synchronizedMap(new WeakHashMap<Object, Topology>());
+
+    private static final ExecutorService NODE_EXECUTOR = new ThreadPoolExecutor(0, MAX_NODE_THREADS, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "cache-cluster-node-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private RedisClusterSupport() {
+    }
+
+    public static boolean isClusterConnection(RedisConnection connection) {
+        return unwrap(connection) instanceof RedisClusterConnection;
+    }
+
+    /**
+     * 是否可以直接在节点上执行pipeline
+     *
+     * @param connection
+     * @return
+     */
+    public static boolean supportsNodeExecution(RedisConnection connection) {
+        return isClusterConnection(connection) && connection.getNativeConnection() instanceof JedisCluster;
+    }
+
+    /**
+     * 是否是Lettuce集群连接，可以通过{@link LettuceClusterSupport}批量执行
+     *
+     * @param connection
+     * @return
+     */
+    public static boolean supportsLettuceExecution(RedisConnection connection) {
+        return LETTUCE_PRESENT && isClusterConnection(connection) && LettuceClusterSupport.isLettuceCluster(connection);
+    }
+
+    /**
+     * 集群中的master节点，格式为 host:port
+     *
+     * @param connection
+     * @return
+     */
+    public static List<String> getMasterNodes(RedisConnection connection) {
+        return new ArrayList<String>(getTopology(connection).masters);
+    }
+
+    /**
+     * 按节点和slot对key分组，同一个slot的key可以用一条多key命令执行
+     *
+     * @param connection
+     * @param keys
+     * @return 节点 -> (slot -> keys)
+     */
+    public static Map<String, Map<Integer, List<byte[]>>> groupByNode(RedisConnection connection, Collection<byte[]> keys) {
+        Topology topology = getTopology(connection);
+        Map<String, Map<Integer, List<byte[]>>> result = new LinkedHashMap<String, Map<Integer, List<byte[]>>>();
+        for (byte[] key : keys) {
+            int slot = ClusterSlotHashUtil.calculateSlot(key);
+            String node = topology.slots[slot];
+            if (node == null) {
+                refreshTopology(connection);
+                throw new RedisSystemException("No master serves slot " + slot, null);
+            }
+            Map<Integer, List<byte[]>> slots = result.get(node);
+            if (slots == null) {
+                slots = new LinkedHashMap<Integer, List<byte[]>>();
+                result.put(node, slots);
+            }
+            List<byte[]> slotKeys = slots.get(slot);
+            if (slotKeys == null) {
+                slotKeys = new ArrayList<byte[]>();
+                slots.put(slot, slotKeys);
+            }
+            slotKeys.add(key);
+        }
+        return result;
+    }
+
+    /**
+     * 按slot对key分组，不需要节点拓扑
+     *
+     * @param keys
+     * @return 每个slot的key
+     */
+    static Collection<List<byte[]>> groupBySlot(Collection<byte[]> keys) {
+        Map<Integer, List<byte[]>> slots = new LinkedHashMap<Integer, List<byte[]>>();
+        for (byte[] key : keys) {
+            int slot = ClusterSlotHashUtil.calculateSlot(key);
+            List<byte[]> slotKeys = slots.get(slot);
+            if (slotKeys == null) {
+                slotKeys = new ArrayList<byte[]>();
+                slots.put(slot, slotKeys);
+            }
+            slotKeys.add(key);
+        }
+        return slots.values();
+    }
+
+    /**
+     * key所在slot对应的master节点
+     *
+     * @param connection
+     * @param key
+     * @return host:port
+     */
+    public static String getNodeForKey(RedisConnection connection, byte[] key) {
+        int slot = ClusterSlotHashUtil.calculateSlot(key);
+        String node = getTopology(connection).slots[slot];
+        if (node == null) {
+            refreshTopology(connection);
+            throw new RedisSystemException("No master serves slot " + slot, null);
+        }
+        return node;
+    }
+
+    /**
+     * 在多个节点上并行执行，每个节点占用一个连接
+     *
+     * @param connection
+     * @param nodes      host:port
+     * @param callback
+     * @param <T>
+     * @return 节点 -> 执行结果
+     */
+    public static <T> Map<String, T> executeOnNodes(RedisConnection connection, Collection<String> nodes, final NodeCallback<T> callback) {
+        final JedisCluster cluster = (JedisCluster) connection.getNativeConnection();
+        return executeInParallel(connection, nodes, new NodeTask<T>() {
+            @Override
+            public T execute(String node) {
+                JedisPool pool = cluster.getClusterNodes().get(node);
+                if (pool == null) {
+                    throw new RedisSystemException("Unknown cluster node " + node, null);
+                }
+                Jedis jedis = pool.getResource();
+                try {
+                    return callback.doInNode(node, jedis);
+                } finally {
+                    jedis.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * 在多个节点上并行执行，节点连接由task自行获取
+     *
+     * @param connection
+     * @param nodes      host:port
+     * @param task
+     * @param <T>
+     * @return 节点 -> 执行结果
+     */
+    static <T> Map<String, T> executeInParallel(RedisConnection connection, Collection<String> nodes, final NodeTask<T> task) {
+        Map<String, Future<T>> futures = new LinkedHashMap<String, Future<T>>();
+        for (final String node : nodes) {
+            futures.put(node, NODE_EXECUTOR.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return task.execute(node);
+                }
+            }));
+        }
+
+        Map<String, T> results = new LinkedHashMap<String, T>();
+        RuntimeException failure = null;
+        for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new RedisSystemException("Interrupted while executing on cluster nodes", e);
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RedisSystemException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+        if (failure != null) {
+            refreshTopology(connection);
+            throw failure;
+        }
+        return results;
+    }
+
+    public static void refreshTopology(RedisConnection connection) {
+        TOPOLOGIES.remove(connection.getNativeConnection());
+    }
+
+    private static Topology getTopology(RedisConnection connection) {
+        Object nativeConnection = connection.getNativeConnection();
+        Topology topology = TOPOLOGIES.get(nativeConnection);
+        if (topology == null || topology.loadedAt + TOPOLOGY_TTL_MILLIS < System.currentTimeMillis()) {
+            topology = new Topology(((RedisClusterConnection) unwrap(connection)).clusterGetNodes());
+            TOPOLOGIES.put(nativeConnection, topology);
+        }
+        return topology;
+    }
+
+    private static RedisConnection unwrap(RedisConnection connection) {
+        while (connection instanceof DecoratedRedisConnection) {
+            connection = ((DecoratedRedisConnection) connection).getDelegate();
+        }
+        return connection;
+    }
+
+    public interface NodeCallback<T> {
+        T doInNode(String node, Jedis jedis);
+    }
+
+    interface NodeTask<T> {
+        T execute(String node);
+    }
+
+    private static class Topology {
+        private final String[] slots = new String[16384];
+        private final List<String> masters = new ArrayList<String>();
+        private final long loadedAt = System.currentTimeMillis();
+
+        Topology(Iterable<RedisClusterNode> nodes) {
+            for (RedisClusterNode node : nodes) {
+                if (!node.isMaster() || node.isMarkedAsFail() || node.getSlotRange() == null) {
+                    continue;
+                }
+                String address = node.asString();
+                masters.add(address);
+                for (int slot : node.getSlotRange().getSlotsArray()) {
+                    slots[slot] = address;
+                }
+            }
+        }
+    }
+}
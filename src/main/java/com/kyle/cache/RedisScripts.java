@@ -0,0 +1,59 @@
+package com.kyle.cache;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+
+/**
+ * lua脚本执行工具
+ * <p>
+ * 优先使用EVALSHA，脚本未加载时退回EVAL；spring-data-redis 的Jedis集群连接不支持脚本，直接使用 JedisCluster 执行，
+ * Lettuce的单机和集群连接都按第一个key路由，直接通过RedisConnection执行。集群模式下脚本中的key必须在同一个slot。返回值：INTEGER为Long，VALUE为byte[]，MULTI为List
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public final class RedisScripts {
+    private static final StringRedisSerializer STRING_SERIALIZER = new StringRedisSerializer();
+
+    private RedisScripts() {
+    }
+
+    public static RedisScript<Object> of(String script) {
+        return new DefaultRedisScript<Object>(script, Object.class);
+    }
+
+    public static Object eval(RedisConnection connection, RedisScript<?> script, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+        Object nativeConnection = connection.getNativeConnection();
+        if (nativeConnection instanceof JedisCluster) {
+            JedisCluster cluster = (JedisCluster) nativeConnection;
+            try {
+                return cluster.evalsha(STRING_SERIALIZER.serialize(script.getSha1()), numKeys, keysAndArgs);
+            } catch (JedisNoScriptException e) {
+                return cluster.eval(STRING_SERIALIZER.serialize(script.getScriptAsString()), numKeys, keysAndArgs);
+            }
+        }
+        try {
+            return connection.evalSha(script.getSha1(), returnType, numKeys, keysAndArgs);
+        } catch (RuntimeException e) {
+            if (!isNoScriptError(e)) {
+                throw e;
+            }
+            return connection.eval(STRING_SERIALIZER.serialize(script.getScriptAsString()), returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    private static boolean isNoScriptError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JedisNoScriptException || (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
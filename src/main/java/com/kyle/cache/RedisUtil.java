@@ -22,6 +22,8 @@ import javax.annotation.Resource;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unchecked")
@@ -34,6 +36,8 @@ public class RedisUtil {
     private RedisTemplate redisTemplate;
     @Autowired
     private CacheRedisConfig cacheRedisConfig;
+    @Autowired(required = false)
+    private CacheAsyncExecutor cacheAsyncExecutor;
 
     private static final String delimiter = ":";
 
@@ -247,6 +251,58 @@ public class RedisUtil {
         return redisTemplate.expire(key, timeout, TimeUnit.SECONDS);
     }
 
+    /**
+     * 异步读取缓存，在缓存的I/O线程中执行
+     *
+     * @param prefix
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Object> getAsync(final String prefix, final String key) {
+        return submit(() -> get(prefix, key));
+    }
+
+    public CompletableFuture<Object> getAsync(final String key) {
+        return getAsync(null, key);
+    }
+
+    public <T> CompletableFuture<T> getAsync(final String key, final Class<T> t) {
+        return submit(() -> get(key, t));
+    }
+
+    /**
+     * 异步写入缓存
+     *
+     * @param prefix
+     * @param key
+     * @param value
+     * @param expireTime
+     * @param unit
+     * @return 是否写入成功
+     */
+    public CompletableFuture<Boolean> setAsync(final String prefix, final String key, final Object value, final Long expireTime, final TimeUnit unit) {
+        return submit(() -> set(prefix, key, value, expireTime, unit));
+    }
+
+    public CompletableFuture<Boolean> setAsync(final String key, final Object value, final Long expireTime, final TimeUnit unit) {
+        return setAsync(null, key, value, expireTime, unit);
+    }
+
+    public CompletableFuture<Boolean> existsAsync(final String key) {
+        return submit(() -> exists(key));
+    }
+
+    public CompletableFuture<Void> removeAsync(final String key) {
+        return submit(() -> {
+            remove(key);
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        return cacheAsyncExecutor != null ? cacheAsyncExecutor.submit(task) : CacheAsyncExecutor.callNow(task);
+    }
+
     private String dealWithKey(String prefix, String key) {
         return String.format("%s%s%s", StringUtils.isEmpty(prefix) ? cacheRedisConfig.getCacheName() : prefix, delimiter, key);
     }
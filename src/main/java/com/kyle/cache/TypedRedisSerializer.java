@@ -0,0 +1,26 @@
+package com.kyle.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 可以按目标类型、从字节数组片段直接反序列化的RedisSerializer
+ * <p>
+ * 缓存读取时调用方给出类型的情况下使用，省去解包时复制的数组和按Object读取后的类型转换
+ *
+ * @author: carroll
+ * @date 2026/10/17
+ * Copyright @https://github.com/carroll0911.
+ */
+public interface TypedRedisSerializer<T> extends RedisSerializer<T> {
+
+    /**
+     * @param bytes  数据
+     * @param offset 起始位置
+     * @param length 长度
+     * @param type   目标类型，为null时按Object读取
+     * @return
+     * @throws SerializationException
+     */
+    Object deserialize(byte[] bytes, int offset, int length, Class<?> type) throws SerializationException;
+}